@@ -1,25 +1,74 @@
 package project5;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
- * The class provides a recursive implementation for a binary search tree.
+ * The class provides an implementation for a self-balancing (AVL) binary search tree.
+ * Every node also keeps the number of its descendants and the sum of the
+ * weights of the items in its subtree, which supports rank, select and range
+ * sum queries in O(log n).
+ *
+ * The tree may be read by many threads while one thread changes it. Changes
+ * hold the write lock of the tree; reads run optimistically without locking and
+ * are repeated under the read lock only if a change happened at the same time.
+ * The public methods take the lock and call unlocked protected methods, which
+ * subclasses use to combine several steps under one lock.
+ *
+ * snapshot() returns a read-only view of the tree as it is at that moment, in
+ * O(1). The view shares all nodes with the tree; afterwards the tree copies
+ * every shared node before changing it (path copying), so the nodes of the view
+ * never change and it can be read without any locking.
+ *
+ * The iterator and spliterator of the tree read it without locking and are
+ * fail-fast: they throw ConcurrentModificationException once they notice that
+ * the tree was changed after they were created. To iterate while the tree
+ * changes, iterate a snapshot.
  *
  * @author Zhenghan Zhang
  *
  * @param <T> generic type of data that is stored in nodes of the tree; needs to
  *            implement Comparable<T> interface
  */
-public class AVLTree<T extends Comparable<T>> {
+public class AVLTree<T extends Comparable<T>> implements Iterable<T> {
 
 	// root of the tree
 	protected Node<T> root;
 	// current number of nodes in the tree
 	protected int numOfElements;
-	//helper variable used by the remove methods
-	private boolean found;
+	//weight of an item used for the subtree sums; null means every item weighs 0
+	private ToLongFunction<? super T> weigher;
+	//guards the nodes against readers during changes
+	protected final OptimisticLock lock = new OptimisticLock();
+	//readers that follow more links than this saw a change in progress
+	protected static final int MAX_DEPTH = 64;
+	//nodes of an older version may be shared with snapshots and are copied before they change
+	private int version;
+	//set for snapshots, which cannot be changed
+	private boolean readOnly;
+	//number of changes, which lets iterators notice that the tree changed under them
+	private volatile int modCount;
+	//an AVL tree of at most Integer.MAX_VALUE nodes is less than 1.44 * log2(n + 2) = 45 high
+	private static final int MAX_HEIGHT = 45;
+	//nodes from the root down to a change; shared by add and remove, which hold the write lock
+	private final Node<T>[] path = newPath(MAX_HEIGHT);
 	
 	//determines whether this tree is empty
 	public boolean isEmpty() {
-        return root == null;
+        return size() == 0;
     }
 
 	/**
@@ -28,6 +77,46 @@ public class AVLTree<T extends Comparable<T>> {
 	public AVLTree() {
 		this.root = null;
 		this.numOfElements = 0;
+		Metrics.tree(this);
+	}
+	
+	/**
+	 * Creates an empty tree that keeps the sum of the given weight over every subtree.
+	 * @param weigher function that returns the weight of an item
+	 */
+	public AVLTree(ToLongFunction<? super T> weigher) {
+		this();
+		this.weigher = weigher;
+	}
+	
+	/**
+	 * Creates a read-only view that shares the nodes of the given tree. The
+	 * caller must hold the write lock of the source tree.
+	 * @param source the tree to take a snapshot of
+	 */
+	protected AVLTree(AVLTree<T> source) {
+		this.root = source.root;
+		this.numOfElements = source.numOfElements;
+		this.weigher = source.weigher;
+		this.readOnly = true;
+		//from now on the source copies the shared nodes before changing them
+		source.version++;
+	}
+	
+	/**
+	 * Returns a read-only view of this tree as it is now. Later changes of this
+	 * tree are not visible in the view; the view costs nothing until this tree
+	 * changes, and then only the changed paths are copied.
+	 * @return the snapshot of this tree
+	 */
+	public AVLTree<T> snapshot() {
+		long stamp = lock.writeLock();
+		try {
+			return new AVLTree<T>(this);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
 	}
 	/**
 	 * This method returns the height of a given node; returns -1 when null;
@@ -41,41 +130,181 @@ public class AVLTree<T extends Comparable<T>> {
 		return node.height;
 	}
 	
+	/**
+	 * Returns the height of the root and the number of elements, read together.
+	 * @return an array of the height and the size of this tree
+	 */
+	int[] shape() {
+		return lock.read(() -> new int[] {height(root), numOfElements});
+	}
+	
 	/**
 	 * Add the given data item to the tree. If item is null, the tree does not
 	 * change. If item already exists, the tree does not change.
 	 *
 	 * @param item the new element to be added to the tree
+	 * @return true if the item was added, false if the tree did not change
 	 */
-	public void add(T item) {
+	public boolean add(T item) {
+		long stamp = lock.writeLock();
+		try {
+			return insert(item);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Actual implementation of add, to be called while holding the write lock.
+	 *
+	 * @param item the new element to be added to the tree
+	 * @return true if the item was added, false if the tree did not change
+	 */
+	protected boolean insert(T item) {
+		checkWritable();
 		if (item == null)
-			return;
-		root = recAdd (root, item);
+			return false;
+		//nodes from the root down to the parent of the new leaf
+		Node<T>[] path = this.path;
+		int depth = 0;
+		Node<T> node = root;
+		int i = 0;
+		while (node != null) {
+			i = item.compareTo(node.data);
+			if (i == 0) {
+				Metrics.comparisons(Metrics.Operation.ADD, depth + 1);
+				Arrays.fill(path, 0, depth, null);
+				return false;
+			}
+			path[depth++] = node;
+			node = (i < 0) ? node.left : node.right;
+		}
+		Metrics.comparisons(Metrics.Operation.ADD, depth);
+		Node<T> leaf = newNode(item);
+		leaf.sum = weight(item);
+		ownPath(path, depth);
+		if (depth == 0)
+			root = leaf;
+		else if (i < 0)
+			path[depth - 1].left = leaf;
+		else
+			path[depth - 1].right = leaf;
+		rebalancePath(path, depth);
 		this.numOfElements ++;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Replaces the content of this tree with the given items, which must be sorted
+	 * in ascending order. Of several equal items only the first one is kept, as
+	 * with repeated calls to add. The tree is built perfectly balanced in linear time.
+	 *
+	 * @param sorted the items in ascending order
+	 * @throws IllegalArgumentException if an item is null or the items are not sorted
+	 */
+	public void bulkLoad(T[] sorted) {
+		bulkLoad(Arrays.asList(sorted));
+	}
 
+	/**
+	 * Replaces the content of this tree with the given items, which must be sorted
+	 * in ascending order. Of several equal items only the first one is kept, as
+	 * with repeated calls to add. The tree is built perfectly balanced in linear time.
+	 *
+	 * @param sorted the items in ascending order
+	 * @throws IllegalArgumentException if an item is null or the items are not sorted
+	 */
+	public void bulkLoad(Collection<? extends T> sorted) {
+		long stamp = lock.writeLock();
+		try {
+			rebuild(sorted);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Actual implementation of bulkLoad, to be called while holding the write lock.
+	 *
+	 * @param sorted the items in ascending order
+	 * @throws IllegalArgumentException if an item is null or the items are not sorted
+	 */
+	protected void rebuild(Collection<? extends T> sorted) {
+		checkWritable();
+		ArrayList<T> items = new ArrayList<T>(sorted.size());
+		T previous = null;
+		for (T item : sorted) {
+			if (item == null)
+				throw new IllegalArgumentException("bulkLoad called with a null item");
+			if (previous != null) {
+				int i = previous.compareTo(item);
+				if (i > 0)
+					throw new IllegalArgumentException("bulkLoad called with items that are not sorted");
+				if (i == 0)
+					continue;
+			}
+			items.add(item);
+			previous = item;
+		}
+		root = build(items, 0, items.size() - 1);
+		numOfElements = items.size();
+		modCount++;
 	}
-	
-	
-	
-	
 
 	/*
-	 * Actual recursive implementation of add.
+	 * Builds a perfectly balanced subtree from the items between lo and hi,
+	 * both inclusive.
 	 *
-	 * @param item the new element to be added to the tree
+	 * @return root of the subtree, null if the range is empty
 	 */
-	private Node<T> recAdd(Node<T> node, T item) {
-		if (node == null) {
-            return new Node<T>(item);
-        }
-        int i = item.compareTo(node.data);
-        if (i < 0) {
-            node.left = recAdd(node.left, item);
-        } else if (i > 0) {
-            node.right = recAdd(node.right, item);
-        }
-        
-        return this.balance(node);
+	private Node<T> build(List<T> items, int lo, int hi) {
+		if (lo > hi)
+			return null;
+		int mid = (lo + hi) >>> 1;
+		Node<T> node = newNode(items.get(mid));
+		node.left = build(items, lo, mid - 1);
+		node.right = build(items, mid + 1, hi);
+		updateHeight(node);
+		return node;
+	}
+
+	/**
+	 * Returns the element stored in this tree that is equal to the given item
+	 * (according to compareTo), or null if there is no such element.
+	 *
+	 * @param item the item to look for
+	 * @return the stored element equal to item, or null if not found
+	 */
+	public T get(T item) {
+		return lock.read(() -> find(item));
+	}
+
+	/**
+	 * Actual implementation of get, to be called while holding a lock or in an
+	 * optimistic read.
+	 *
+	 * @param item the item to look for
+	 * @return the stored element equal to item, or null if not found
+	 */
+	protected T find(T item) {
+		if (item == null)
+			return null;
+		Node<T> node = root;
+		int depth = 0;
+		while (node != null) {
+			checkDepth(++depth);
+			int i = item.compareTo(node.data);
+			if (i == 0) {
+				Metrics.comparisons(Metrics.Operation.LOOKUP, depth);
+				return node.data;
+			}
+			node = (i < 0) ? node.left : node.right;
+		}
+		Metrics.comparisons(Metrics.Operation.LOOKUP, depth);
+		return null;
 	}
 
 	/**
@@ -83,74 +312,157 @@ public class AVLTree<T extends Comparable<T>> {
 	 * item is not found in the tree, the tree remains unchanged.
 	 *
 	 * @param target the item to be removed from this tree
+	 * @return true if the item was found and removed, false otherwise
 	 */
 	public boolean remove(T target)
 	{
-		root = recRemove(target, root);
-		if (found) numOfElements--; 
-		return found;
+		long stamp = lock.writeLock();
+		try {
+			return delete(target) != null;
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
 	}
 
-
-	/*
-	 * Actual recursive implementation of remove method: find the node to remove.
+	/**
+	 * Actual implementation of remove, to be called while holding the write lock:
+	 * finds the node holding target, unlinks it (or its inorder predecessor, whose
+	 * data takes its place) and rebalances the path back to the root.
 	 *
 	 * @param target the item to be removed from this tree
+	 * @return the element that was removed, or null if it was not found
 	 */
-	private Node<T> recRemove(T target, Node<T> node)
+	protected T delete(T target)
 	{
+		checkWritable();
+		if (target == null)
+			return null;
+		//nodes from the root down to the parent of the unlinked node
+		Node<T>[] path = this.path;
+		int depth = 0;
+		Node<T> node = root;
+		while (node != null) {
+			int i = target.compareTo(node.data);
+			if (i == 0)
+				break;
+			path[depth++] = node;
+			node = (i < 0) ? node.left : node.right;
+		}
+		Metrics.comparisons(Metrics.Operation.REMOVE, node == null ? depth : depth + 1);
 		if (node == null) {
-			found = false;
+			Arrays.fill(path, 0, depth, null);
 			return null;
 		}
-		if (target.compareTo(node.data) < 0)
-			node.left = recRemove(target, node.left);
-		else if (target.compareTo(node.data) > 0)
-			node.right = recRemove(target, node.right );
-		else {
-			node = removeNode(node);
-			found = true;
+		ownPath(path, depth);
+		T removed = node.data;
+		Node<T> victim = node;
+		Node<T> child;
+		if (node.left == null) {
+			child = node.right;
+		} else if (node.right == null) {
+			child = node.left;
+		} else {
+			//the rightmost node of the left subtree replaces the removed data
+			Node<T> owned = own(node);
+			replaceChild(depth == 0 ? null : path[depth - 1], node, owned);
+			node = owned;
+			path[depth++] = node;
+			victim = own(node.left);
+			node.left = victim;
+			while (victim.right != null) {
+				path[depth++] = victim;
+				Node<T> next = own(victim.right);
+				victim.right = next;
+				victim = next;
+			}
+			node.data = victim.data;
+			child = victim.left;
 		}
-		if (node==null) return null;
-		return this.balance(node);
+		replaceChild(depth == 0 ? null : path[depth - 1], victim, child);
+		rebalancePath(path, depth);
+		numOfElements--;
+		modCount++;
+		return removed;
 	}
 
 	/*
-	 * Actual recursive implementation of remove method: perform the removal.
+	 * Rebalances the nodes of the path from the deepest one up to the root and
+	 * links every rebalanced subtree back into its parent. The path is cleared,
+	 * so it does not keep removed nodes alive.
 	 *
-	 * @param target the item to be removed from this tree
-	 * @return a reference to the node itself, or to the modified subtree
+	 * @param path nodes from the root downwards
+	 * @param depth number of nodes on the path
 	 */
-	private Node<T> removeNode(Node<T> node)
-	{
-		T data;
-		if (node.left == null)
-			return node.right ;
-		else if (node.right  == null)
-			return node.left;
-		else {
-			data = getPredecessor(node.left);
-			node.data = data;
-			node.left = recRemove(data, node.left);
-			return node;
+	private void rebalancePath(Node<T>[] path, int depth) {
+		for (int d = depth - 1; d >= 0; d--) {
+			Node<T> n = path[d];
+			Node<T> b = this.balance(n);
+			replaceChild(d == 0 ? null : path[d - 1], n, b);
+			path[d] = null;
 		}
 	}
 
-	
+	/*
+	 * Replaces the child old of parent (or the root, when parent is null) by replacement.
+	 */
+	private void replaceChild(Node<T> parent, Node<T> old, Node<T> replacement) {
+		if (parent == null)
+			root = replacement;
+		else if (parent.left == old)
+			parent.left = replacement;
+		else
+			parent.right = replacement;
+	}
 
 	/*
-	 * Returns the information held in the rightmost node of subtree
-	 *
-	 * @param subtree root of the subtree within which to search for the rightmost node
-	 * @return returns data stored in the rightmost node of subtree
+	 * Makes sure that the nodes of a path from the root can be changed: nodes
+	 * shared with a snapshot are replaced by copies, from the root downwards.
 	 */
-	private T getPredecessor(Node<T> subtree)
-	{
-		if (subtree==null) throw new NullPointerException("getPredecessor called with an empty subtree");
-		Node<T> temp = subtree;
-		while (temp.right  != null)
-			temp = temp.right ;
-		return temp.data;
+	private void ownPath(Node<T>[] path, int depth) {
+		for (int d = 0; d < depth; d++) {
+			Node<T> n = own(path[d]);
+			if (n != path[d]) {
+				replaceChild(d == 0 ? null : path[d - 1], path[d], n);
+				path[d] = n;
+			}
+		}
+	}
+
+	/*
+	 * Returns the node itself if it belongs to the current version of this
+	 * tree, otherwise a copy that does; the caller links the copy in.
+	 */
+	private Node<T> own(Node<T> node) {
+		if (node == null || node.version == version)
+			return node;
+		Node<T> copy = new Node<T>(node.data);
+		copy.left = node.left;
+		copy.right = node.right;
+		copy.height = node.height;
+		copy.desc = node.desc;
+		copy.sum = node.sum;
+		copy.version = version;
+		return copy;
+	}
+
+	private Node<T> newNode(T item) {
+		Node<T> node = new Node<T>(item);
+		node.version = version;
+		return node;
+	}
+
+	private void checkWritable() {
+		if (readOnly)
+			throw new UnsupportedOperationException("A snapshot cannot be changed");
+	}
+
+	/*
+	 * Allocates a path stack large enough for a tree of the given height.
+	 */
+	@SuppressWarnings("unchecked")
+	private Node<T>[] newPath(int height) {
+		return (Node<T>[]) new Node<?>[height + 1];
 	}
 	
 	/**
@@ -180,23 +492,273 @@ public class AVLTree<T extends Comparable<T>> {
 	            n = this.balanceRL(n);
 	        }
 	    }
-	    	n.height = this.max(this.height(n.left), this.height(n.right)) + 1;
+	    	this.updateHeight(n);
 	    	return n;
 		}
 	/**
-	 * The method that updates the height of the current node
+	 * The method that updates the height, the number of descendants and the
+	 * subtree sum of the current node from its children
 	 * @param n the input node
 	 */
 	void updateHeight(Node<T> n) {
-		if (this.height(n) == 1) {
-			n.height = 1;
-		}else if(n.left == null) {
-			n.height = this.height(n.right) + 1;
-		}else if (n.right == null) {
-			n.height = this.height(n.left) + 1;
-		}else {
-			n.height = max(this.height(n.left) , this.height(n.right)) + 1;
+		n.height = max(this.height(n.left) , this.height(n.right)) + 1;
+		n.desc = subtreeSize(n.left) + subtreeSize(n.right);
+		n.sum = weight(n.data) + subtreeSum(n.left) + subtreeSum(n.right);
+	}
+	
+	/**
+	 * Returns the number of nodes in the subtree; 0 when null
+	 * @param node root of the subtree
+	 * @return number of nodes in the subtree
+	 */
+	private int subtreeSize(Node<T> node) {
+		return (node == null) ? 0 : node.desc + 1;
+	}
+	
+	/**
+	 * Returns the sum of the weights in the subtree; 0 when null
+	 * @param node root of the subtree
+	 * @return sum of the weights in the subtree
+	 */
+	private long subtreeSum(Node<T> node) {
+		return (node == null) ? 0 : node.sum;
+	}
+	
+	/**
+	 * Returns the weight of the item as given by the weigher of this tree
+	 * @param item the item
+	 * @return the weight of the item, 0 if this tree has no weigher
+	 */
+	private long weight(T item) {
+		return (weigher == null) ? 0 : weigher.applyAsLong(item);
+	}
+	
+	/**
+	 * Returns the number of elements in this tree that are smaller than item.
+	 *
+	 * @param item the item whose rank is computed
+	 * @return number of elements smaller than item
+	 */
+	public int rank(T item) {
+		return lock.readInt(() -> rankOf(item));
+	}
+	
+	/*
+	 * Unlocked implementation of rank.
+	 */
+	private int rankOf(T item) {
+		int r = 0;
+		Node<T> node = root;
+		int depth = 0;
+		while (node != null) {
+			checkDepth(++depth);
+			int i = item.compareTo(node.data);
+			if (i < 0) {
+				node = node.left;
+			} else if (i > 0) {
+				r += subtreeSize(node.left) + 1;
+				node = node.right;
+			} else {
+				Metrics.comparisons(Metrics.Operation.QUERY, depth);
+				return r + subtreeSize(node.left);
+			}
 		}
+		Metrics.comparisons(Metrics.Operation.QUERY, depth);
+		return r;
+	}
+	
+	/**
+	 * Returns the element with the given rank, i.e. the k-th smallest element
+	 * counting from 0.
+	 *
+	 * @param k rank of the element
+	 * @return the element that has exactly k smaller elements in this tree
+	 * @throws IndexOutOfBoundsException if k is negative or not smaller than size()
+	 */
+	public T select(int k) {
+		return lock.read(() -> selectAt(k));
+	}
+	
+	/*
+	 * Unlocked implementation of select.
+	 */
+	private T selectAt(int k) {
+		if (k < 0 || k >= subtreeSize(root))
+			throw new IndexOutOfBoundsException("Invalid rank " + k + " for a tree of size " + subtreeSize(root));
+		Node<T> node = root;
+		int depth = 0;
+		while (true) {
+			checkDepth(++depth);
+			int left = subtreeSize(node.left);
+			if (k < left) {
+				node = node.left;
+			} else if (k > left) {
+				k -= left + 1;
+				node = node.right;
+			} else {
+				return node.data;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the k smallest elements of this tree in order. Only the first k
+	 * nodes of the inorder traversal are visited.
+	 *
+	 * @param k the number of elements to return
+	 * @return list of at most k smallest elements in ascending order
+	 */
+	public List<T> first(int k) {
+		return lock.read(() -> collectFirst(k));
+	}
+	
+	/**
+	 * Actual implementation of first, to be called while holding a lock or in an
+	 * optimistic read.
+	 *
+	 * @param k the number of elements to return
+	 * @return list of at most k smallest elements in ascending order
+	 */
+	protected List<T> collectFirst(int k) {
+		ArrayList<T> list = new ArrayList<T>(Math.max(0, Math.min(k, numOfElements)));
+		ArrayDeque<Node<T>> stack = new ArrayDeque<Node<T>>();
+		Node<T> node = root;
+		while (list.size() < k && (node != null || !stack.isEmpty())) {
+			while (node != null) {
+				stack.push(node);
+				checkDepth(stack.size());
+				node = node.left;
+			}
+			node = stack.pop();
+			list.add(node.data);
+			node = node.right;
+		}
+		return list;
+	}
+	
+	/**
+	 * Returns the sum of the weights of all elements in this tree.
+	 *
+	 * @return sum of the weights of all elements
+	 */
+	public long sum() {
+		return lock.read(() -> subtreeSum(root));
+	}
+	
+	/**
+	 * Returns the sum of the weights of the elements between lo and hi, both inclusive.
+	 *
+	 * @param lo lower bound of the range
+	 * @param hi upper bound of the range
+	 * @return sum of the weights of the elements in the range, 0 if lo is greater than hi
+	 */
+	public long rangeSum(T lo, T hi) {
+		if (lo.compareTo(hi) > 0)
+			return 0;
+		return lock.read(() -> sumBelow(hi, true) - sumBelow(lo, false));
+	}
+	
+	/**
+	 * Returns the number of elements between lo and hi, both inclusive.
+	 *
+	 * @param lo lower bound of the range
+	 * @param hi upper bound of the range
+	 * @return number of elements in the range, 0 if lo is greater than hi
+	 */
+	public int rangeCount(T lo, T hi) {
+		if (lo.compareTo(hi) > 0)
+			return 0;
+		return lock.readInt(() -> rankOf(hi) - rankOf(lo) + (find(hi) != null ? 1 : 0));
+	}
+	
+	/**
+	 * Passes the elements between lo and hi, both inclusive, to an action in
+	 * ascending order. Only the nodes on the paths to the bounds and the nodes
+	 * inside the range are visited.
+	 *
+	 * The tree is read locked while the action runs, so the action must not
+	 * change this tree.
+	 *
+	 * @param lo lower bound of the range
+	 * @param hi upper bound of the range
+	 * @param action the action called for every element in the range
+	 * @return number of elements passed to the action
+	 */
+	public int range(T lo, T hi, Consumer<? super T> action) {
+		return scan(item -> item.compareTo(lo) < 0 ? -1 : (item.compareTo(hi) > 0 ? 1 : 0), action);
+	}
+
+	/**
+	 * Passes the elements of a contiguous range of this tree to an action in
+	 * ascending order. The range is given by a locator, which returns a negative
+	 * number for an element below the range, 0 for an element inside it and a
+	 * positive number for an element above it; subtrees that lie entirely
+	 * outside the range are not visited.
+	 *
+	 * The tree is read locked while the action runs, so the action must not
+	 * change this tree.
+	 *
+	 * @param locator the position of an element relative to the range
+	 * @param action the action called for every element in the range
+	 * @return number of elements passed to the action
+	 */
+	public int scan(ToIntFunction<? super T> locator, Consumer<? super T> action) {
+		long stamp = lock.readLock();
+		try {
+			return scan(root, locator, action, 1);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	private int scan(Node<T> node, ToIntFunction<? super T> locator, Consumer<? super T> action, int depth) {
+		int visited = 0;
+		while (node != null) {
+			checkDepth(depth);
+			int position = locator.applyAsInt(node.data);
+			if (position >= 0) {
+				//the range may start in the left subtree
+				visited += scan(node.left, locator, action, depth + 1);
+			}
+			if (position == 0) {
+				action.accept(node.data);
+				visited++;
+			}
+			if (position > 0) {
+				break;
+			}
+			//the rest of the range is in the right subtree
+			node = node.right;
+			depth++;
+		}
+		return visited;
+	}
+
+	/*
+	 * Sums the weights of the elements smaller than bound (or equal to it when
+	 * inclusive is set) along a single path from the root.
+	 */
+	private long sumBelow(T bound, boolean inclusive) {
+		long s = 0;
+		Node<T> node = root;
+		int depth = 0;
+		while (node != null) {
+			checkDepth(++depth);
+			int i = bound.compareTo(node.data);
+			if (i < 0) {
+				node = node.left;
+			} else if (i > 0) {
+				s += subtreeSum(node.left) + weight(node.data);
+				node = node.right;
+			} else {
+				s += subtreeSum(node.left);
+				if (inclusive)
+					s += weight(node.data);
+				return s;
+			}
+		}
+		return s;
 	}
 
 	/**
@@ -205,7 +767,19 @@ public class AVLTree<T extends Comparable<T>> {
 	 * @return number of elements in this BST
 	 */
 	public int size() {
-		return numOfElements;
+		return lock.readInt(() -> numOfElements);
+	}
+	
+	/**
+	 * Throws if a reader went deeper than any AVL tree of at most 2^31 nodes can
+	 * be tall, which only happens when it followed links that were being changed.
+	 *
+	 * @param depth number of nodes the reader has followed
+	 * @throws IllegalStateException if depth is larger than MAX_DEPTH
+	 */
+	protected static void checkDepth(int depth) {
+		if (depth > MAX_DEPTH)
+			throw new IllegalStateException("The tree changed while it was read");
 	}
 
 	/**
@@ -214,9 +788,11 @@ public class AVLTree<T extends Comparable<T>> {
 	 * @return string representation of this tree
 	 */
 	public String toString() {
-		StringBuilder s = new StringBuilder();
-		inOrderPrint(root, s);
-		return s.toString();
+		return lock.readLocked(() -> {
+			StringBuilder s = new StringBuilder();
+			inOrderPrint(root, s);
+			return s.toString();
+		});
 	}
 	/**
 	 * This is an auxiliary method, which is used for simple mathematical comparison
@@ -237,18 +813,14 @@ public class AVLTree<T extends Comparable<T>> {
 	 * @return an identification number that decides whether to use a balance method;
 	 */
 	int balanceFactor ( Node<T> n ) {
-	if ( n.right == null ) {
-		return -(this.height(n));
-		} 
-	if ( n.left == null ) {
-		return this.height(n); 
-	}
 	return (this.height(n.right) - this.height(n.left));
 	}
 	
-	// These blocks are balance methods which should be called when adding or deleting nodes
+	// These blocks are balance methods which should be called when adding or deleting nodes;
+	// A is already owned by the current version, the other rotated nodes are copied if shared
 	private Node<T> balanceLL(Node<T> A){
-		Node<T> B = A.left;
+		Metrics.rotation(Metrics.Rotation.LL);
+		Node<T> B = own(A.left);
 		A.left = B.right;
 		B.right = A;
 		
@@ -258,7 +830,8 @@ public class AVLTree<T extends Comparable<T>> {
 		
 	}
 	private Node<T> balanceRR(Node<T> A){
-		Node<T> B = A.right;
+		Metrics.rotation(Metrics.Rotation.RR);
+		Node<T> B = own(A.right);
 		A.right = B.left;
 		B.left = A;
 		
@@ -268,8 +841,9 @@ public class AVLTree<T extends Comparable<T>> {
 	}
 	
 	private Node<T> balanceLR(Node<T> A){
-		Node<T> B = A.left;
-		Node<T> C = B.right;
+		Metrics.rotation(Metrics.Rotation.LR);
+		Node<T> B = own(A.left);
+		Node<T> C = own(B.right);
 		
 		A.left =  C.right;
 		B.right = C.left;
@@ -284,8 +858,9 @@ public class AVLTree<T extends Comparable<T>> {
 	}
 	
 	private Node<T> balanceRL(Node<T> A){
-		Node<T> B = A.right;
-		Node<T> C = B.left;
+		Metrics.rotation(Metrics.Rotation.RL);
+		Node<T> B = own(A.right);
+		Node<T> C = own(B.left);
 		
 		A.right =  C.left;
 		B.left = C.right;
@@ -315,6 +890,208 @@ public class AVLTree<T extends Comparable<T>> {
 		}
 	}
 
+	/**
+	 * Returns an iterator over the elements of this tree in ascending order. It
+	 * keeps only the path to the next element and does not lock the tree.
+	 *
+	 * @return the iterator
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new TreeIterator();
+	}
+
+	/**
+	 * Returns a spliterator over the elements of this tree in ascending order.
+	 * It splits at subtree boundaries, and both parts know their exact size.
+	 *
+	 * @return the spliterator
+	 */
+	@Override
+	public Spliterator<T> spliterator() {
+		return new TreeSpliterator(root, modCount);
+	}
+
+	/**
+	 * Returns a sequential stream of the elements of this tree in ascending order;
+	 * call parallel() on it to spread the work over subtrees.
+	 *
+	 * @return the stream
+	 */
+	public Stream<T> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/*
+	 * In-order iterator that keeps a stack of the nodes whose data and right
+	 * subtree are still to be visited.
+	 */
+	private class TreeIterator implements Iterator<T> {
+		private int expectedModCount = modCount;
+		private Node<T>[] stack;
+		private int top;
+
+		TreeIterator() {
+			Node<T> node = root;
+			stack = newPath(height(node));
+			pushLeft(node);
+		}
+
+		private void pushLeft(Node<T> node) {
+			while (node != null) {
+				if (top == stack.length)
+					stack = Arrays.copyOf(stack, top * 2);
+				stack[top++] = node;
+				node = node.left;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return top > 0;
+		}
+
+		@Override
+		public T next() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (top == 0)
+				throw new NoSuchElementException();
+			Node<T> node = stack[--top];
+			pushLeft(node.right);
+			return node.data;
+		}
+	}
+
+	/*
+	 * Spliterator over a sequence of parts of the tree. The parts are kept on a
+	 * stack with the next part on top; a part is a whole subtree, a node followed
+	 * by its right subtree, or a single node.
+	 */
+	private class TreeSpliterator implements Spliterator<T> {
+		private static final byte WHOLE = 0;
+		private static final byte NODE_RIGHT = 1;
+		private static final byte NODE = 2;
+
+		private final int expectedModCount;
+		private Node<T>[] nodes;
+		private byte[] kinds;
+		private int top;
+		//number of elements in all parts
+		private long remaining;
+
+		TreeSpliterator(Node<T> node, int expectedModCount) {
+			this.expectedModCount = expectedModCount;
+			this.nodes = newPath(2 * height(node) + 4);
+			this.kinds = new byte[nodes.length];
+			if (node != null)
+				push(node, WHOLE);
+		}
+
+		private void push(Node<T> node, byte kind) {
+			if (top == nodes.length) {
+				nodes = Arrays.copyOf(nodes, top * 2);
+				kinds = Arrays.copyOf(kinds, top * 2);
+			}
+			nodes[top] = node;
+			kinds[top++] = kind;
+			remaining += size(node, kind);
+		}
+
+		private long size(Node<T> node, byte kind) {
+			switch (kind) {
+			case WHOLE:
+				return node.desc + 1;
+			case NODE_RIGHT:
+				return node.right == null ? 1 : node.right.desc + 2;
+			default:
+				return 1;
+			}
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			while (top > 0) {
+				Node<T> node = nodes[--top];
+				byte kind = kinds[top];
+				remaining -= size(node, kind);
+				if (kind == WHOLE) {
+					//the leftmost node of the subtree comes first
+					for (; node != null; node = node.left)
+						push(node, NODE_RIGHT);
+					continue;
+				}
+				if (kind == NODE_RIGHT && node.right != null)
+					push(node.right, WHOLE);
+				action.accept(node.data);
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			while (tryAdvance(action)) {
+			}
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (remaining < 2)
+				return null;
+			if (top == 1) {
+				//divide the only part, so that the parts in front of its last subtree can be split off
+				Node<T> node = nodes[0];
+				byte kind = kinds[0];
+				top = 0;
+				remaining = 0;
+				if (kind == WHOLE && node.left != null) {
+					push(node, NODE_RIGHT);
+					push(node.left, WHOLE);
+				}
+				else {
+					//node with a right subtree, or a subtree without left subtree: split before the right child
+					Node<T> right = node.right;
+					push(right, NODE_RIGHT);
+					if (right.left != null)
+						push(right.left, WHOLE);
+					push(node, NODE);
+				}
+			}
+			//the prefix gets all parts but the last one
+			TreeSpliterator prefix = new TreeSpliterator(null, expectedModCount);
+			for (int i = 1; i < top; i++) {
+				prefix.push(nodes[i], kinds[i]);
+			}
+			for (int i = 1; i < top; i++) {
+				remaining -= size(nodes[i], kinds[i]);
+				nodes[i] = null;
+			}
+			top = 1;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return remaining;
+		}
+
+		@Override
+		public int characteristics() {
+			return SIZED | SUBSIZED | SORTED | ORDERED | DISTINCT | NONNULL;
+		}
+
+		@Override
+		public Comparator<? super T> getComparator() {
+			//the elements are sorted by their natural order
+			return null;
+		}
+	}
+
 	/**
 	 * DO NOT MOFIFY THIS METHOD.
 	 * INCLUDE IT AS-IS IN YOUR CODE.
@@ -393,6 +1170,8 @@ public class AVLTree<T extends Comparable<T>> {
 
 		public int height;
 		protected int desc; 		//num of descendants
+		protected long sum;			//sum of the weights in this subtree
+		int version;				//version of the tree that may change this node
 
 
 		/**
@@ -0,0 +1,200 @@
+package project5;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * This class answers a file of queries without the prompts of the interactive
+ * mode. Every line of the input is a query "name,county" in the csv format of
+ * the names file; the county may be left out and then is ALL. Blank lines are
+ * skipped.
+ *
+ * The queries are read in blocks, the queries of a block are evaluated in
+ * parallel, and their results are written in the order of the input through
+ * the single writer given to run, as histograms like those of the interactive
+ * mode, as csv rows (name, county, year, fraction) or as one JSON object per
+ * line.
+ *
+ * @author Zhenghan Zhang
+ */
+public class BatchQueries {
+	//number of queries that are evaluated together before their results are written
+	private static final int BLOCK = 1024;
+
+	/**
+	 * The formats of the results.
+	 */
+	public enum Format {
+		//the histograms of the interactive mode, each after a line with the query
+		TEXT,
+		//one row per query and year, with a header line
+		CSV,
+		//one JSON object per query and line
+		JSON
+	}
+
+	private NamesQueries data;
+	private Format format;
+	private int firstYear;
+	private int lastYear;
+
+	/**
+	 * Creates a batch of queries about all years of the data.
+	 * @param data the names to query
+	 * @param format the format of the results
+	 */
+	public BatchQueries(NamesQueries data, Format format) {
+		this.data = data;
+		this.format = format;
+		this.firstYear = data.getMinYear();
+		this.lastYear = data.getMaxYear();
+	}
+
+	/**
+	 * Answers all queries of the input and writes the results. The writer should
+	 * be buffered; it is flushed, but not closed, at the end.
+	 * @param in the queries, one per line
+	 * @param out the writer of the results
+	 * @return the number of queries answered
+	 * @throws IOException if the input cannot be read or the output cannot be written
+	 */
+	public int run(BufferedReader in, Writer out) throws IOException {
+		if (format == Format.CSV) {
+			out.write("name,county,year,fraction\n");
+		}
+		int answered = 0;
+		ArrayList<String[]> block = new ArrayList<String[]>(BLOCK);
+		//one tokenizer splits all lines of the input
+		CSVTokenizer tokenizer = new CSVTokenizer();
+		String line;
+		while ((line = in.readLine()) != null) {
+			String[] query = parse(tokenizer, line);
+			if (query == null) {
+				continue;
+			}
+			block.add(query);
+			if (block.size() == BLOCK) {
+				answered += write(block, out);
+			}
+		}
+		answered += write(block, out);
+		out.flush();
+		return answered;
+	}
+
+	/*
+	 * Evaluates a block of queries in parallel, writes the results in order and
+	 * empties the block.
+	 */
+	private int write(ArrayList<String[]> block, Writer out) throws IOException {
+		String[] results = new String[block.size()];
+		IntStream.range(0, results.length).parallel().forEach(i -> results[i] = answer(block.get(i)[0], block.get(i)[1]));
+		for (String result : results) {
+			out.write(result);
+		}
+		block.clear();
+		return results.length;
+	}
+
+	/**
+	 * Splits a line of queries into name and county; a missing county is ALL.
+	 * @param tokenizer the tokenizer reused for all lines of the input
+	 * @param line the line
+	 * @return the name and the county, or null for a line without name
+	 */
+	static String[] parse(CSVTokenizer tokenizer, String line) {
+		int fields = tokenizer.tokenize(line);
+		if (fields == 0 || tokenizer.start(0) == tokenizer.end(0)) {
+			return null;
+		}
+		String county = fields > 1 && tokenizer.start(1) < tokenizer.end(1) ? tokenizer.stringField(1) : "ALL";
+		return new String[] {tokenizer.stringField(0), county};
+	}
+
+	/**
+	 * Answers one query in the format of this batch.
+	 * @param name a String of name
+	 * @param county the name of the county (ALL for the whole state)
+	 * @return the text of the result, ending with a line separator
+	 */
+	public String answer(String name, String county) {
+		double[] fractions = data.getFractions(name, county, firstYear, lastYear);
+		StringBuilder s = new StringBuilder();
+		switch (format) {
+		case TEXT:
+			s.append(name).append(", ").append(county).append(":\n");
+			NYSBabyNames.appendHistogram(s, firstYear, fractions);
+			break;
+		case CSV:
+			if (fractions == null) {
+				appendCSV(s, name).append(',');
+				appendCSV(s, county).append(",,\n");
+			}
+			else {
+				for (int i = 0; i < fractions.length; i++) {
+					appendCSV(s, name).append(',');
+					appendCSV(s, county).append(',').append(firstYear + i).append(',').append(fractions[i]).append('\n');
+				}
+			}
+			break;
+		case JSON:
+			s.append("{\"name\":");
+			appendJSON(s, name).append(",\"county\":");
+			appendJSON(s, county).append(",\"found\":").append(fractions != null);
+			if (fractions != null) {
+				s.append(",\"firstYear\":").append(firstYear).append(",\"fractions\":[");
+				for (int i = 0; i < fractions.length; i++) {
+					s.append(i == 0 ? "" : ",").append(fractions[i]);
+				}
+				s.append(']');
+			}
+			s.append("}\n");
+			break;
+		}
+		return s.toString();
+	}
+
+	/*
+	 * Appends a csv field, in double quotes if it contains a comma or a quote.
+	 */
+	private static StringBuilder appendCSV(StringBuilder s, String field) {
+		if (field.indexOf(',') < 0 && field.indexOf('"') < 0) {
+			return s.append(field);
+		}
+		return s.append('"').append(field.replace("\"", "\"\"")).append('"');
+	}
+
+	/*
+	 * Appends a JSON string with the characters that need it escaped.
+	 */
+	private static StringBuilder appendJSON(StringBuilder s, String value) {
+		s.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				s.append('\\').append(c);
+			}
+			else if (c < 0x20) {
+				s.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+			}
+			else {
+				s.append(c);
+			}
+		}
+		return s.append('"');
+	}
+
+	/**
+	 * Parses the name of a format, ignoring case.
+	 * @param name text, csv or json
+	 * @return the format
+	 * @throws IllegalArgumentException if there is no format with that name
+	 */
+	public static Format format(String name) {
+		return Format.valueOf(name.toUpperCase(Locale.ROOT));
+	}
+}
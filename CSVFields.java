@@ -0,0 +1,95 @@
+package project5;
+
+/**
+ * The fields of the current line of a csv reader, kept as ranges of offsets
+ * into the characters or bytes of the line. The parsing of numeric fields is
+ * shared by CSVTokenizer and MappedCSVReader, which only differ in where the
+ * characters of a field are stored.
+ *
+ * @author Zhenghan Zhang
+ */
+public abstract class CSVFields {
+	//fields of the current line as ranges of offsets
+	protected int fieldCount;
+	protected int[] starts = new int[8];
+	protected int[] ends = new int[8];
+
+	/**
+	 * get the number of fields of the current line
+	 * @return the number of fields
+	 */
+	public int fieldCount() {
+		return fieldCount;
+	}
+
+	/**
+	 * Returns a field of the current line as a new String.
+	 * @param i index of the field
+	 * @return the field
+	 * @throws IndexOutOfBoundsException if the line has no such field
+	 */
+	public abstract String stringField(int i);
+
+	/**
+	 * get a character of a field; a byte of UTF-8 is returned as a value from 0 to 255
+	 * @param field index of the field
+	 * @param p offset of the character, between the start and the end of the field
+	 * @return the character
+	 */
+	protected abstract int charAt(int field, int p);
+
+	/**
+	 * Parses a field as a decimal int, following the rules of Integer.parseInt.
+	 * @param i index of the field
+	 * @return the value of the field
+	 * @throws IndexOutOfBoundsException if the line has no such field
+	 * @throws NumberFormatException if the field is not a valid int
+	 */
+	public int intField(int i) {
+		checkIndex(i);
+		int from = starts[i];
+		int to = ends[i];
+		if (from == to) {
+			throw new NumberFormatException("For input string: \"\"");
+		}
+		boolean negative = false;
+		int first = charAt(i, from);
+		if (first == '-' || first == '+') {
+			negative = first == '-';
+			from++;
+			if (from == to) {
+				throw new NumberFormatException("For input string: \"" + stringField(i) + "\"");
+			}
+		}
+		//accumulate negatively so that Integer.MIN_VALUE can be parsed
+		int bound = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+		int result = 0;
+		for (int p = from; p < to; p++) {
+			int c = charAt(i, p);
+			if (c < '0' || c > '9') {
+				if (c >= 0x80) {
+					//non ASCII digits are rare; leave them to Integer.parseInt
+					return Integer.parseInt(stringField(i));
+				}
+				throw new NumberFormatException("For input string: \"" + stringField(i) + "\"");
+			}
+			int digit = c - '0';
+			if (result < bound / 10 || result * 10 < bound + digit) {
+				throw new NumberFormatException("For input string: \"" + stringField(i) + "\"");
+			}
+			result = result * 10 - digit;
+		}
+		return negative ? result : -result;
+	}
+
+	/**
+	 * Checks that the current line has a field.
+	 * @param i index of the field
+	 * @throws IndexOutOfBoundsException if the line has no such field
+	 */
+	protected void checkIndex(int i) {
+		if (i < 0 || i >= fieldCount) {
+			throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + fieldCount);
+		}
+	}
+}
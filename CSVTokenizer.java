@@ -0,0 +1,145 @@
+package project5;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * This class splits lines of a csv file into fields following the rules of
+ * NYSBabyNames.splitCSVLine. One tokenizer is meant to be reused for many lines:
+ * the characters of all fields of the current line are kept in a single buffer
+ * and a field is only turned into a String when stringField is called.
+ *
+ * The views and offsets returned by this class are valid until the next call
+ * to tokenize.
+ *
+ * @author Zhenghan Zhang
+ */
+public class CSVTokenizer extends CSVFields {
+	//characters of all fields of the current line
+	private char[] buffer = new char[128];
+	private int length;
+
+	/**
+	 * Splits the given line according to commas and double quotes (double quotes
+	 * are used to surround multi-word entries so that they may contain commas).
+	 * @param textLine a line of text to be split
+	 * @return the number of fields found on that line
+	 */
+	public int tokenize(CharSequence textLine) {
+		length = 0;
+		fieldCount = 0;
+		int lineLength = textLine.length();
+		int fieldStart = 0;
+		boolean insideQuotes = false;
+		boolean insideEntry = false;
+
+		for (int i = 0; i < lineLength; i++) {
+			char nextChar = textLine.charAt(i);
+
+			// handle smart quotes as well as regular quotes
+			if (nextChar == '"' || nextChar == '\u201C' || nextChar == '\u201D') {
+				insideEntry = !insideQuotes;
+				insideQuotes = !insideQuotes;
+			} else if (Character.isWhitespace(nextChar)) {
+				// whitespace between entries is skipped
+				if (insideQuotes || insideEntry) {
+					append(nextChar);
+				}
+			} else if (nextChar == ',') {
+				if (insideQuotes) {
+					append(nextChar);
+				} else {
+					// end of entry found
+					insideEntry = false;
+					addField(fieldStart, length);
+					fieldStart = length;
+				}
+			} else {
+				append(nextChar);
+				insideEntry = true;
+			}
+		}
+
+		// add the last entry if it is not empty, trimmed
+		if (length > fieldStart) {
+			int end = length;
+			while (fieldStart < end && buffer[fieldStart] <= ' ') {
+				fieldStart++;
+			}
+			while (end > fieldStart && buffer[end - 1] <= ' ') {
+				end--;
+			}
+			addField(fieldStart, end);
+		}
+		return fieldCount;
+	}
+
+	/**
+	 * get the buffer holding the characters of the current line
+	 * @return the buffer; fields are ranges given by start and end
+	 */
+	public char[] buffer() {
+		return buffer;
+	}
+
+	/**
+	 * get the offset of the first character of a field in the buffer
+	 * @param i index of the field
+	 * @return the offset of the field
+	 * @throws IndexOutOfBoundsException if the line has no such field
+	 */
+	public int start(int i) {
+		checkIndex(i);
+		return starts[i];
+	}
+
+	/**
+	 * get the offset just past the last character of a field in the buffer
+	 * @param i index of the field
+	 * @return the end of the field
+	 * @throws IndexOutOfBoundsException if the line has no such field
+	 */
+	public int end(int i) {
+		checkIndex(i);
+		return ends[i];
+	}
+
+	/**
+	 * Returns a view of a field that shares the buffer of this tokenizer.
+	 * @param i index of the field
+	 * @return the characters of the field
+	 * @throws IndexOutOfBoundsException if the line has no such field
+	 */
+	public CharSequence field(int i) {
+		checkIndex(i);
+		return CharBuffer.wrap(buffer, starts[i], ends[i] - starts[i]);
+	}
+
+	@Override
+	public String stringField(int i) {
+		checkIndex(i);
+		return new String(buffer, starts[i], ends[i] - starts[i]);
+	}
+
+	@Override
+	protected int charAt(int field, int p) {
+		return buffer[p];
+	}
+
+	private void append(char c) {
+		if (length == buffer.length) {
+			buffer = Arrays.copyOf(buffer, length * 2);
+		}
+		buffer[length++] = c;
+	}
+
+	private void addField(int start, int end) {
+		if (fieldCount == starts.length) {
+			starts = Arrays.copyOf(starts, fieldCount * 2);
+			ends = Arrays.copyOf(ends, fieldCount * 2);
+		}
+		starts[fieldCount] = start;
+		ends[fieldCount] = end;
+		fieldCount++;
+	}
+}
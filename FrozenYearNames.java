@@ -0,0 +1,256 @@
+package project5;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * This class is a read-only form of YearNames for data that no longer changes.
+ * The names of the year are stored in the order of the tree as parallel
+ * primitive columns (name id, county id, gender, count) together with prefix
+ * sums of the counts. The entries of one name are contiguous, and the range of
+ * every name of the year is kept in a directory sorted by name id, so a lookup
+ * is a binary search over ints followed by a few elements instead of a chain of
+ * tree nodes. The directory only holds the names of its year, not every id of
+ * the dictionary.
+ *
+ * The columns are buffers, so they may wrap arrays or be views of a memory
+ * mapped snapshot file. Instances are created with YearNames.freeze() or read
+ * by NamesSnapshot.open().
+ *
+ * @author Zhenghan Zhang
+ */
+public class FrozenYearNames implements YearQueries {
+	private int year;
+	//columns of the names, sorted like the YearNames tree
+	IntBuffer names;
+	ShortBuffer counties;
+	ByteBuffer genders;
+	IntBuffer counts;
+	//prefix.get(i) is the sum of the counts of the first i names
+	LongBuffer prefix;
+	//sum of the counts per county id
+	IntBuffer countyTotals;
+	//distinct name ids of the year in ascending order; the entries of nameIds.get(k)
+	//are the positions from nameStart.get(k) to nameEnd.get(k) (exclusive)
+	IntBuffer nameIds;
+	IntBuffer nameStart;
+	IntBuffer nameEnd;
+	
+	/**
+	 * Creates a frozen year from its columns and computes the prefix sums and
+	 * the directory of the names.
+	 * @param year the year
+	 * @param names name id of every entry, in sorted order
+	 * @param counties county id of every entry
+	 * @param genders gender id of every entry
+	 * @param counts count of every entry
+	 * @param countyTotals sum of the counts per county id
+	 */
+	FrozenYearNames(int year, int[] names, short[] counties, byte[] genders, int[] counts, int[] countyTotals) {
+		long[] prefix = new long[counts.length + 1];
+		int runs = 0;
+		for (int i = 0; i < counts.length; i++) {
+			prefix[i + 1] = prefix[i] + counts[i];
+			if (i == 0 || names[i] != names[i - 1]) {
+				runs++;
+			}
+		}
+		//sort the first position of every name by name id; ids are not negative
+		long[] firsts = new long[runs];
+		for (int i = 0, r = 0; i < counts.length; i++) {
+			if (i == 0 || names[i] != names[i - 1]) {
+				firsts[r++] = (long) names[i] << 32 | i;
+			}
+		}
+		Arrays.sort(firsts);
+		int[] nameIds = new int[runs];
+		int[] nameStart = new int[runs];
+		int[] nameEnd = new int[runs];
+		for (int k = 0; k < runs; k++) {
+			nameIds[k] = (int) (firsts[k] >>> 32);
+			nameStart[k] = (int) firsts[k];
+			int end = nameStart[k] + 1;
+			while (end < counts.length && names[end] == nameIds[k]) {
+				end++;
+			}
+			nameEnd[k] = end;
+		}
+		this.year = year;
+		this.names = IntBuffer.wrap(names);
+		this.counties = ShortBuffer.wrap(counties);
+		this.genders = ByteBuffer.wrap(genders);
+		this.counts = IntBuffer.wrap(counts);
+		this.prefix = LongBuffer.wrap(prefix);
+		this.countyTotals = IntBuffer.wrap(countyTotals);
+		this.nameIds = IntBuffer.wrap(nameIds);
+		this.nameStart = IntBuffer.wrap(nameStart);
+		this.nameEnd = IntBuffer.wrap(nameEnd);
+	}
+	
+	/**
+	 * Creates a frozen year from complete columns, as written by NamesSnapshot.
+	 * Only absolute get methods are used, so the positions of the buffers do not matter.
+	 */
+	FrozenYearNames(int year, IntBuffer names, ShortBuffer counties, ByteBuffer genders, IntBuffer counts,
+			LongBuffer prefix, IntBuffer countyTotals, IntBuffer nameIds, IntBuffer nameStart, IntBuffer nameEnd) {
+		this.year = year;
+		this.names = names;
+		this.counties = counties;
+		this.genders = genders;
+		this.counts = counts;
+		this.prefix = prefix;
+		this.countyTotals = countyTotals;
+		this.nameIds = nameIds;
+		this.nameStart = nameStart;
+		this.nameEnd = nameEnd;
+	}
+	
+	@Override
+	public int getYear() {
+		return year;
+	}
+	
+	/**
+	 * get the number of entries
+	 * @return the number of distinct (name, county, gender) entries of this year
+	 */
+	public int size() {
+		return counts.limit();
+	}
+	
+	/**
+	 * get an entry of this year
+	 * @param index position of the entry in sorted order
+	 * @return the entry as a Name
+	 * @throws IndexOutOfBoundsException if index is out of range
+	 */
+	public Name get(int index) {
+		return new Name(names.get(index), counties.get(index), genders.get(index), counts.get(index));
+	}
+	
+	@Override
+	public int getTotalCount() {
+		return (int) prefix.get(size());
+	}
+	
+	@Override
+	public int getCountyTotal(String county) {
+		if (county.equalsIgnoreCase("ALL")) {
+			return getTotalCount();
+		}
+		return getCountyTotal(StringDictionary.COUNTIES.lookup(county));
+	}
+	
+	/**
+	 * get the total number of babies in a county in this year
+	 * @param countyId the id of the county
+	 * @return the sum of the counts of all names in that county, 0 for an unknown id
+	 */
+	int getCountyTotal(int countyId) {
+		if (countyId < 0 || countyId >= countyTotals.limit()) {
+			return 0;
+		}
+		return countyTotals.get(countyId);
+	}
+	
+	@Override
+	public int getCountByName(String name) {
+		return getCountByName(StringDictionary.NAMES.lookup(name));
+	}
+	
+	/**
+	 * get the count of the babies with that name that year
+	 * @param nameId the id of the name
+	 * @return the number of occurrences of that name, 0 for an unknown id
+	 */
+	int getCountByName(int nameId) {
+		int k = find(nameId);
+		if (k < 0) {
+			return 0;
+		}
+		return (int) (prefix.get(nameEnd.get(k)) - prefix.get(nameStart.get(k)));
+	}
+	
+	/*
+	 * Finds a name id in the directory of the names by binary search.
+	 * Returns its position in the directory, or -1 if the name is not in this year.
+	 */
+	private int find(int nameId) {
+		int lo = 0;
+		int hi = nameIds.limit() - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int id = nameIds.get(mid);
+			if (id < nameId) {
+				lo = mid + 1;
+			}
+			else if (id > nameId) {
+				hi = mid - 1;
+			}
+			else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	public double getFractionByName(String name) {
+		return fraction(getCountByName(name), getTotalCount());
+	}
+	
+	@Override
+	public int getCountByNameCounty(String name, String county) {
+		if (county.equalsIgnoreCase("ALL")) {
+			return getCountByName(name);
+		}
+		return getCountByNameCounty(StringDictionary.NAMES.lookup(name), StringDictionary.COUNTIES.lookup(county));
+	}
+	
+	/**
+	 * get the count of the babies with that name in a county that year
+	 * @param nameId the id of the name
+	 * @param countyId the id of the county
+	 * @return the number of occurrences of that name, 0 for an unknown id
+	 */
+	int getCountByNameCounty(int nameId, int countyId) {
+		int k = countyId < 0 ? -1 : find(nameId);
+		if (k < 0) {
+			return 0;
+		}
+		//the entries of a name are sorted by county, so those of the county are adjacent
+		int end = nameEnd.get(k);
+		int from = nameStart.get(k);
+		while (from < end && counties.get(from) != countyId) {
+			from++;
+		}
+		int to = from;
+		while (to < end && counties.get(to) == countyId) {
+			to++;
+		}
+		return (int) (prefix.get(to) - prefix.get(from));
+	}
+	
+	@Override
+	public double getFractionByNameCounty(String name, String county) {
+		if (county.equalsIgnoreCase("ALL")) {
+			return getFractionByName(name);
+		}
+		int countyId = StringDictionary.COUNTIES.lookup(county);
+		return fraction(getCountByNameCounty(StringDictionary.NAMES.lookup(name), countyId), getCountyTotal(countyId));
+	}
+	
+	static double fraction(int m, int i) {
+		if (m == 0 && i == 0) {
+			return (double) 0;
+		}
+		return ((double) m / i);
+	}
+	
+	public String toString () { 
+		return String.format("%d",year); 
+	}
+}
@@ -0,0 +1,261 @@
+package project5;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * This class caches the histograms of the most recently queried names in front
+ * of a NamesQueries. For every cached name and county it keeps the counts of all
+ * years; the yearly totals of the counties are kept apart, so the fractions of
+ * a histogram are computed from two cached arrays.
+ *
+ * The cache holds at most a given number of bytes and evicts the least recently
+ * used histograms first. As a listener of the YearNames of the data it drops
+ * exactly the histograms a change can affect: those of the changed name in its
+ * county and in all counties, and the totals of that county and of the state.
+ *
+ * For a NamesSnapshot, which has no series index, a miss takes one lookup per
+ * year. In front of a NamesDataset the misses are read from its NameSeries with
+ * one lookup, and the cache drops what the changes of the dataset make stale.
+ *
+ * The cache may be used by several threads. Missing histograms are computed
+ * without holding the lock of the cache, and are only stored if no change
+ * happened while they were computed.
+ *
+ * @author Zhenghan Zhang
+ */
+public class HistogramCache implements NamesQueries, YearNames.Listener {
+	private static final int YEARS = NamesDataset.LAST_YEAR - NamesDataset.FIRST_YEAR + 1;
+	//estimated size of one cached histogram: the map entry, the key and the array of counts
+	private static final long ENTRY_BYTES = 32 + 16 + 16 + 4L * YEARS;
+	
+	private NamesQueries source;
+	private long maxBytes;
+	//counts of all years keyed by key(nameId, countyId), in access order
+	private LinkedHashMap<Long, int[]> histograms = new LinkedHashMap<Long, int[]>(16, 0.75f, true);
+	//totals of all years, indexed by county id + 1; row 0 is the whole state, null if not cached
+	private int[][] totals = new int[1][];
+	
+	//incremented by every invalidation
+	private long version;
+	
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+	
+	/**
+	 * Creates an empty cache. To follow changes of a NamesDataset the cache has
+	 * to be registered with NamesDataset.addListener.
+	 * @param source the data the histograms are computed from
+	 * @param maxBytes the largest number of bytes the cached histograms may use
+	 */
+	public HistogramCache(NamesQueries source, long maxBytes) {
+		this.source = source;
+		this.maxBytes = maxBytes;
+	}
+	
+	@Override
+	public int getMinYear() {
+		return source.getMinYear();
+	}
+	
+	@Override
+	public int getMaxYear() {
+		return source.getMaxYear();
+	}
+	
+	@Override
+	public NameSearchIndex getSearchIndex() {
+		return source.getSearchIndex();
+	}
+	
+	@Override
+	public YearQueries getYearQueries(int year) {
+		return source.getYearQueries(year);
+	}
+	
+	@Override
+	public double[] getFractions(String name, String county, int firstYear, int lastYear) {
+		boolean all = county.equalsIgnoreCase("ALL");
+		int nameId = StringDictionary.NAMES.lookup(name);
+		int countyId = all ? -1 : StringDictionary.COUNTIES.lookup(county);
+		if (nameId < 0 || (countyId < 0 && !all) || firstYear > lastYear) {
+			//unknown names and counties have no babies in any year
+			return null;
+		}
+		int[] counts = counts(nameId, countyId, name, county);
+		int[] total = totals(countyId, county);
+		double[] fractions = new double[lastYear - firstYear + 1];
+		boolean found = false;
+		for (int y = firstYear; y <= lastYear; y++) {
+			int index = y - NamesDataset.FIRST_YEAR;
+			int m = (index < 0 || index >= YEARS) ? 0 : counts[index];
+			int i = (index < 0 || index >= YEARS) ? 0 : total[index];
+			if (m != 0 || i != 0) {
+				fractions[y - firstYear] = (double) m / i;
+			}
+			found |= m != 0;
+		}
+		return found ? fractions : null;
+	}
+	
+	private int[] counts(int nameId, int countyId, String name, String county) {
+		long key = key(nameId, countyId);
+		long stamp;
+		synchronized (this) {
+			int[] counts = histograms.get(key);
+			if (counts != null) {
+				hits++;
+				return counts;
+			}
+			misses++;
+			stamp = version;
+		}
+		int[] counts;
+		if (source instanceof NamesDataset) {
+			counts = ((NamesDataset) source).getSeries().getCounts(name, county, NamesDataset.FIRST_YEAR, NamesDataset.LAST_YEAR);
+		}
+		else {
+			counts = new int[YEARS];
+			for (int i = 0; i < YEARS; i++) {
+				counts[i] = source.getYearQueries(NamesDataset.FIRST_YEAR + i).getCountByNameCounty(name, county);
+			}
+		}
+		synchronized (this) {
+			if (stamp == version) {
+				histograms.put(key, counts);
+				//evict the least recently used histograms
+				Iterator<Long> eldest = histograms.keySet().iterator();
+				while (histograms.size() * ENTRY_BYTES > maxBytes && eldest.hasNext()) {
+					eldest.next();
+					eldest.remove();
+					evictions++;
+				}
+			}
+		}
+		return counts;
+	}
+	
+	private int[] totals(int countyId, String county) {
+		long stamp;
+		synchronized (this) {
+			if (countyId + 1 < totals.length && totals[countyId + 1] != null) {
+				return totals[countyId + 1];
+			}
+			stamp = version;
+		}
+		int[] total = new int[YEARS];
+		NameSeries series = source instanceof NamesDataset ? ((NamesDataset) source).getSeries() : null;
+		for (int i = 0; i < YEARS; i++) {
+			total[i] = series != null
+					? series.getTotal(county, NamesDataset.FIRST_YEAR + i)
+					: source.getYearQueries(NamesDataset.FIRST_YEAR + i).getCountyTotal(county);
+		}
+		synchronized (this) {
+			if (stamp == version) {
+				if (countyId + 1 >= totals.length) {
+					int[][] larger = new int[countyId + 2][];
+					System.arraycopy(totals, 0, larger, 0, totals.length);
+					totals = larger;
+				}
+				totals[countyId + 1] = total;
+			}
+		}
+		return total;
+	}
+	
+	@Override
+	public void added(YearNames year, Name name) {
+		invalidate(name);
+	}
+	
+	@Override
+	public void removed(YearNames year, Name name) {
+		invalidate(name);
+	}
+	
+	/*
+	 * Drops the histograms and totals that a change of the name can affect.
+	 */
+	private synchronized void invalidate(Name name) {
+		version++;
+		int county = name.getCountyId();
+		if (histograms.remove(key(name.getNameId(), county)) != null) {
+			invalidations++;
+		}
+		if (histograms.remove(key(name.getNameId(), -1)) != null) {
+			invalidations++;
+		}
+		totals[0] = null;
+		if (county + 1 < totals.length) {
+			totals[county + 1] = null;
+		}
+	}
+	
+	private static long key(int nameId, int countyId) {
+		return ((long) nameId << 16) | (countyId + 1);
+	}
+	
+	/**
+	 * Removes all cached histograms and totals; the counters are kept.
+	 */
+	public synchronized void clear() {
+		version++;
+		histograms.clear();
+		totals = new int[1][];
+	}
+	
+	/**
+	 * get the number of cached histograms
+	 * @return the number of histograms in the cache
+	 */
+	public synchronized int size() {
+		return histograms.size();
+	}
+	
+	/**
+	 * get the estimated number of bytes used by the cached histograms
+	 * @return the estimated size of the cache
+	 */
+	public synchronized long getBytes() {
+		return histograms.size() * ENTRY_BYTES;
+	}
+	
+	/**
+	 * get the number of queries answered from the cache
+	 * @return the number of hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+	
+	/**
+	 * get the number of queries whose histogram had to be computed
+	 * @return the number of misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * get the number of histograms dropped to keep the cache within its size
+	 * @return the number of evictions
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+	
+	/**
+	 * get the number of histograms dropped because their name changed
+	 * @return the number of invalidations
+	 */
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+	
+	public synchronized String toString() {
+		return String.format("%d histograms, %d bytes, %d hits, %d misses, %d evictions, %d invalidations",
+				histograms.size(), getBytes(), hits, misses, evictions, invalidations);
+	}
+}
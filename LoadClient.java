@@ -0,0 +1,162 @@
+package project5;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This program puts load on a QueryServer and reports how long its requests
+ * took. Every connection sends histogram requests for the queries of a file
+ * (lines "name,county" as for batch mode), keeping up to the given number of
+ * requests in flight on the connection (pipelining), and measures the time
+ * from sending a request to reading its whole response.
+ *
+ * Usage: LoadClient port queries [connections] [requests per connection] [pipeline depth]
+ *
+ * It prints one csv line with the number of connections, the pipeline depth,
+ * the number of requests, requests per second, failed requests, and the 50th
+ * percentile, 99th percentile and largest latency in microseconds.
+ *
+ * @author Zhenghan Zhang
+ */
+public class LoadClient {
+
+	/**
+	 * The main() method of this program.
+	 * @param args the port, the file of queries, the number of connections, the
+	 * number of requests per connection and the pipeline depth
+	 * @throws Exception if the queries cannot be read or a connection cannot be opened
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: LoadClient port queries [connections] [requests] [depth]");
+			System.exit(1);
+		}
+		int port = Integer.parseInt(args[0]);
+		int connections = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+		int requests = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+		int depth = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+
+		ArrayList<String> targets = new ArrayList<String>();
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(args[1]), "utf-8"))) {
+			CSVTokenizer tokenizer = new CSVTokenizer();
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] query = BatchQueries.parse(tokenizer, line);
+				if (query == null) {
+					continue;
+				}
+				targets.add("/histogram?name=" + URLEncoder.encode(query[0], StandardCharsets.UTF_8)
+						+ "&county=" + URLEncoder.encode(query[1], StandardCharsets.UTF_8));
+			}
+		}
+		if (targets.isEmpty()) {
+			System.err.println("Error: the file has no queries.");
+			System.exit(1);
+		}
+
+		long[][] latencies = new long[connections][];
+		AtomicLong failed = new AtomicLong();
+		ExecutorService executor = QueryServer.newThreadPerTaskExecutor();
+		ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+		long start = System.nanoTime();
+		for (int c = 0; c < connections; c++) {
+			int connection = c;
+			futures.add(executor.submit(() -> {
+				latencies[connection] = run(port, targets, connection, requests, depth, failed);
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.SECONDS);
+
+		long[] all = new long[connections * requests];
+		for (int c = 0; c < connections; c++) {
+			System.arraycopy(latencies[c], 0, all, c * requests, requests);
+		}
+		Arrays.sort(all);
+		System.out.println("connections,depth,requests,requests/s,failed,p50_us,p99_us,max_us");
+		System.out.printf("%d,%d,%d,%.0f,%d,%.1f,%.1f,%.1f%n", connections, depth, all.length, all.length / seconds,
+				failed.get(), percentile(all, 0.50) / 1e3, percentile(all, 0.99) / 1e3, all[all.length - 1] / 1e3);
+	}
+
+	/*
+	 * Sends the requests of one connection, with up to depth requests in flight,
+	 * and returns the latency of every request in nanoseconds.
+	 */
+	private static long[] run(int port, ArrayList<String> targets, int connection, int requests, int depth,
+			AtomicLong failed) throws IOException {
+		long[] latencies = new long[requests];
+		long[] sent = new long[requests];
+		try (Socket socket = new Socket("localhost", port)) {
+			socket.setTcpNoDelay(true);
+			InputStream in = new BufferedInputStream(socket.getInputStream());
+			OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+			int next = 0;
+			for (int received = 0; received < requests; received++) {
+				//fill the pipeline, then wait for the oldest response
+				if (next < requests && next - received < depth) {
+					while (next < requests && next - received < depth) {
+						String target = targets.get((connection * requests + next) % targets.size());
+						out.write(("GET " + target + " HTTP/1.1\r\nHost: localhost\r\n\r\n")
+								.getBytes(StandardCharsets.ISO_8859_1));
+						sent[next++] = System.nanoTime();
+					}
+					out.flush();
+				}
+				if (!readResponse(in)) {
+					failed.incrementAndGet();
+				}
+				latencies[received] = System.nanoTime() - sent[received];
+			}
+		}
+		return latencies;
+	}
+
+	/*
+	 * Reads one response and returns whether its status was 200.
+	 */
+	private static boolean readResponse(InputStream in) throws IOException {
+		String status = QueryServer.readLine(in);
+		if (status == null) {
+			throw new IOException("The server closed the connection");
+		}
+		long length = 0;
+		String line;
+		while ((line = QueryServer.readLine(in)) != null && !line.isEmpty()) {
+			if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+				length = Long.parseLong(line.substring(15).trim());
+			}
+		}
+		while (length > 0) {
+			long skipped = in.skip(length);
+			if (skipped <= 0) {
+				throw new IOException("The response ended early");
+			}
+			length -= skipped;
+		}
+		return status.startsWith("HTTP/1.1 200");
+	}
+
+	private static long percentile(long[] sorted, double p) {
+		return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+	}
+}
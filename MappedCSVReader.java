@@ -0,0 +1,295 @@
+package project5;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * This class reads the rows of a UTF-8 csv file directly from the bytes of a
+ * (memory mapped) buffer. It follows the same rules as NYSBabyNames.splitCSVLine:
+ * regular and smart double quotes surround entries that may contain commas,
+ * whitespace outside of entries is skipped and the last entry is trimmed.
+ * Lines end at the same separators that Scanner.nextLine() recognizes.
+ *
+ * Fields are kept as offsets into the buffer; only fields interrupted by quotes
+ * or skipped whitespace are copied into a reused scratch array. Numeric fields
+ * are parsed without creating a String.
+ *
+ * @author Zhenghan Zhang
+ */
+public class MappedCSVReader extends CSVFields {
+	private ByteBuffer buffer;
+	//position of the next row and end of the readable bytes
+	private int position;
+	private int limit;
+	//start of the current row, and whether it ended with a line separator
+	private int rowStart;
+	private boolean terminated;
+
+	//copied fields of the current row are stored in scratch
+	private boolean[] copied = new boolean[8];
+	private byte[] scratch = new byte[256];
+	private int scratchLength;
+	//array used to turn fields of the buffer into Strings
+	private byte[] bytes = new byte[64];
+
+	//field that is currently being read
+	private int start;
+	private int end;
+	private boolean inScratch;
+	private boolean started;
+	//number of bytes of the last code point decoded by decode
+	private int decodedLength;
+
+	/**
+	 * Creates a reader of the bytes between the position and the limit of the buffer.
+	 * @param buffer the bytes of the file
+	 */
+	public MappedCSVReader(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.position = buffer.position();
+		this.limit = buffer.limit();
+	}
+
+	/**
+	 * Maps a range of a file into memory and creates a reader for it.
+	 * @param channel the file
+	 * @param from offset of the first byte
+	 * @param to offset after the last byte; at most 2GB after from
+	 * @return a reader of the range
+	 * @throws IOException if the file cannot be mapped
+	 */
+	public static MappedCSVReader map(FileChannel channel, long from, long to) throws IOException {
+		return new MappedCSVReader(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from));
+	}
+
+	/**
+	 * Reads the next line of the buffer.
+	 * @return true if a line was read, false at the end of the buffer
+	 */
+	public boolean nextRow() {
+		if (position >= limit) {
+			return false;
+		}
+		rowStart = position;
+		fieldCount = 0;
+		scratchLength = 0;
+		startField();
+		boolean insideQuotes = false;
+		boolean insideEntry = false;
+		terminated = false;
+		int i = position;
+		while (i < limit) {
+			int b = buffer.get(i) & 0xFF;
+			int length = 1;
+			int c = b;
+			if (b >= 0x80) {
+				c = decode(i);
+				length = decodedLength;
+			}
+			//line separators: \n, \r, \r\n, U+0085, U+2028 and U+2029
+			if (c == '\n' || c == '\r' || c == 0x85 || c == 0x2028 || c == 0x2029) {
+				i += length;
+				if (c == '\r' && i < limit && buffer.get(i) == '\n') {
+					i++;
+				}
+				terminated = true;
+				break;
+			}
+			if (c == '"' || c == 0x201C || c == 0x201D) {
+				insideEntry = !insideQuotes;
+				insideQuotes = !insideQuotes;
+			} else if (isWhitespace(c)) {
+				if (insideQuotes || insideEntry) {
+					append(i, length);
+				}
+			} else if (c == ',') {
+				if (insideQuotes) {
+					append(i, length);
+				} else {
+					insideEntry = false;
+					endField(false);
+				}
+			} else {
+				append(i, length);
+				insideEntry = true;
+			}
+			i += length;
+		}
+		position = i;
+		//the last entry is kept only when it is not empty, and it is trimmed
+		if (started) {
+			endField(true);
+		}
+		return true;
+	}
+
+	/**
+	 * get the offset of the current row from the start of the buffer
+	 * @return offset of the first byte of the row
+	 */
+	public int rowStart() {
+		return rowStart;
+	}
+
+	/**
+	 * get the offset just past the current row, including its line separator
+	 * @return offset of the first byte of the next row
+	 */
+	public int rowEnd() {
+		return position;
+	}
+
+	/**
+	 * Tells whether the current row ended with a line separator. The last row of
+	 * the buffer may not, for example when a line is still being appended to the file.
+	 * @return true if the row was followed by a line separator, false if it ended at the end of the buffer
+	 */
+	public boolean rowTerminated() {
+		return terminated;
+	}
+
+	@Override
+	public String stringField(int i) {
+		checkIndex(i);
+		int length = ends[i] - starts[i];
+		if (copied[i]) {
+			return new String(scratch, starts[i], length, StandardCharsets.UTF_8);
+		}
+		if (bytes.length < length) {
+			bytes = new byte[Math.max(length, bytes.length * 2)];
+		}
+		buffer.get(starts[i], bytes, 0, length);
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	protected int charAt(int field, int p) {
+		return (copied[field] ? scratch[p] : buffer.get(p)) & 0xFF;
+	}
+
+	private void startField() {
+		start = 0;
+		end = 0;
+		inScratch = false;
+		started = false;
+	}
+
+	/*
+	 * Appends the bytes at position p to the current field. The field stays a
+	 * range of the buffer as long as its bytes are contiguous there.
+	 */
+	private void append(int p, int length) {
+		if (!started) {
+			start = p;
+			end = p + length;
+			started = true;
+			return;
+		}
+		if (!inScratch && end == p) {
+			end += length;
+			return;
+		}
+		if (!inScratch) {
+			int n = end - start;
+			ensureScratch(n);
+			buffer.get(start, scratch, scratchLength, n);
+			start = scratchLength;
+			end = scratchLength + n;
+			scratchLength = end;
+			inScratch = true;
+		}
+		ensureScratch(length);
+		buffer.get(p, scratch, end, length);
+		end += length;
+		scratchLength = end;
+	}
+
+	private void ensureScratch(int extra) {
+		if (scratchLength + extra > scratch.length) {
+			byte[] larger = new byte[Math.max(scratch.length * 2, scratchLength + extra)];
+			System.arraycopy(scratch, 0, larger, 0, scratchLength);
+			scratch = larger;
+		}
+	}
+
+	/*
+	 * Stores the current field, trimming it if requested, and starts a new one.
+	 */
+	private void endField(boolean trim) {
+		if (fieldCount == starts.length) {
+			int n = fieldCount * 2;
+			starts = Arrays.copyOf(starts, n);
+			ends = Arrays.copyOf(ends, n);
+			copied = Arrays.copyOf(copied, n);
+		}
+		int from = start;
+		int to = end;
+		if (trim) {
+			while (from < to && (at(from) & 0xFF) <= ' ') {
+				from++;
+			}
+			while (to > from && (at(to - 1) & 0xFF) <= ' ') {
+				to--;
+			}
+		}
+		starts[fieldCount] = from;
+		ends[fieldCount] = to;
+		copied[fieldCount] = inScratch;
+		fieldCount++;
+		startField();
+	}
+
+	private byte at(int p) {
+		return inScratch ? scratch[p] : buffer.get(p);
+	}
+
+	/**
+	 * Same as Character.isWhitespace, with a fast path for ASCII.
+	 */
+	private static boolean isWhitespace(int c) {
+		if (c < 0x80) {
+			return c == ' ' || (c >= 0x09 && c <= 0x0D) || (c >= 0x1C && c <= 0x1F);
+		}
+		return Character.isWhitespace(c);
+	}
+
+	/*
+	 * Decodes the UTF-8 sequence starting at p. Malformed bytes are returned
+	 * one at a time as their own value, which is never a separator.
+	 */
+	private int decode(int p) {
+		int b = buffer.get(p) & 0xFF;
+		int length;
+		int c;
+		if (b >= 0xF0 && b < 0xF8) {
+			length = 4;
+			c = b & 0x07;
+		} else if (b >= 0xE0 && b < 0xF0) {
+			length = 3;
+			c = b & 0x0F;
+		} else if (b >= 0xC0) {
+			length = 2;
+			c = b & 0x1F;
+		} else {
+			decodedLength = 1;
+			return 0xFFFD;
+		}
+		if (p + length > limit) {
+			decodedLength = 1;
+			return 0xFFFD;
+		}
+		for (int k = 1; k < length; k++) {
+			int next = buffer.get(p + k) & 0xFF;
+			if ((next & 0xC0) != 0x80) {
+				decodedLength = 1;
+				return 0xFFFD;
+			}
+			c = (c << 6) | (next & 0x3F);
+		}
+		decodedLength = length;
+		return c;
+	}
+}
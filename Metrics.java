@@ -0,0 +1,371 @@
+package project5;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * This class counts what the trees, the loader and the queries do: rotations
+ * by type, comparisons per add, remove, lookup and query descent, the current
+ * height of the trees relative to log2 of their size, rows read and rejected by
+ * reason, and the latency of the queries of YearNames.
+ *
+ * Counting is off unless the program is started with -Dproject5.metrics=true.
+ * ENABLED is a static final constant, so when it is false the JIT compiler
+ * removes the calls of the hot paths to this class together with the checks.
+ * The counters are LongAdders and arrays of atomic longs, which threads update
+ * without contention. The heights are not counted: every tree that can change
+ * is registered when it is created and the heights are read from the trees
+ * that are still in use when the metrics are read.
+ *
+ * snapshot() returns all counters as a map; register() publishes them through
+ * JMX as an MXBean.
+ *
+ * @author Zhenghan Zhang
+ */
+public class Metrics implements MetricsMXBean {
+	//true if the counters are updated
+	public static final boolean ENABLED = Boolean.getBoolean("project5.metrics");
+
+	/**
+	 * The types of rotations of AVLTree.
+	 */
+	public enum Rotation { LL, RR, LR, RL }
+
+	/**
+	 * The operations whose comparisons are counted: the changes and lookups of
+	 * AVLTree, and the descents of rank and of the count queries of YearNames.
+	 */
+	public enum Operation { ADD, REMOVE, LOOKUP, QUERY }
+
+	/**
+	 * The reasons for skipping a row of the file.
+	 */
+	public enum Reject {
+		//fewer than five fields
+		FIELDS,
+		//a year outside FIRST_YEAR to LAST_YEAR
+		YEAR,
+		//a year or count that is not a number
+		NUMBER,
+		//an empty name
+		NAME,
+		//a gender other than F or M
+		GENDER,
+		//a negative count
+		COUNT,
+		//an empty county
+		COUNTY,
+		//anything else, like a full dictionary
+		OTHER;
+
+		/**
+		 * Finds the reason of an exception thrown by the constructor of Name.
+		 * @param ex the exception
+		 * @return the reason
+		 */
+		static Reject of(IllegalArgumentException ex) {
+			String message = String.valueOf(ex.getMessage());
+			if (ex instanceof NumberFormatException) {
+				return NUMBER;
+			} else if (message.startsWith("Invalid Name")) {
+				return NAME;
+			} else if (message.startsWith("Invalid Gender")) {
+				return GENDER;
+			} else if (message.startsWith("Invalid Count")) {
+				return COUNT;
+			} else if (message.startsWith("Invalid name for county")) {
+				return COUNTY;
+			}
+			return OTHER;
+		}
+	}
+
+	/**
+	 * The queries of YearNames whose latency is measured.
+	 */
+	public enum Query {
+		COUNT_BY_NAME, COUNT_BY_NAME_COUNTY, FRACTION_BY_NAME, FRACTION_BY_NAME_COUNTY, TOP_K, RANK_OF, NAMES_WITH_PREFIX
+	}
+
+	private static final Metrics INSTANCE = new Metrics();
+	private static final String OBJECT_NAME = "project5:type=Metrics";
+	//sub-buckets of every power of two of the latency histograms
+	private static final int SUB_BITS = 2;
+	private static final int BUCKETS = 64 << SUB_BITS;
+
+	private final LongAdder[] rotations = adders(Rotation.values().length);
+	private final LongAdder[] operations = adders(Operation.values().length);
+	private final LongAdder[] comparisons = adders(Operation.values().length);
+	//trees whose height is reported; trees that are no longer used are dropped by the collector
+	private final ConcurrentLinkedQueue<WeakReference<AVLTree<?>>> trees = new ConcurrentLinkedQueue<WeakReference<AVLTree<?>>>();
+	private final LongAdder rows = new LongAdder();
+	private final LongAdder readNanos = new LongAdder();
+	private final LongAdder[] rejected = adders(Reject.values().length);
+	private final AtomicLongArray[] latencies = new AtomicLongArray[Query.values().length];
+	private final LongAdder[] queryNanos = adders(Query.values().length);
+
+	private Metrics() {
+		for (int i = 0; i < latencies.length; i++) {
+			latencies[i] = new AtomicLongArray(BUCKETS);
+		}
+	}
+
+	private static LongAdder[] adders(int n) {
+		LongAdder[] adders = new LongAdder[n];
+		for (int i = 0; i < n; i++) {
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+
+	/**
+	 * Counts a rotation of a tree.
+	 * @param rotation the type of the rotation
+	 */
+	static void rotation(Rotation rotation) {
+		if (ENABLED) {
+			INSTANCE.rotations[rotation.ordinal()].increment();
+		}
+	}
+
+	/**
+	 * Counts an operation of a tree and the comparisons it made.
+	 * @param operation the operation
+	 * @param count the number of comparisons
+	 */
+	static void comparisons(Operation operation, int count) {
+		if (ENABLED) {
+			INSTANCE.operations[operation.ordinal()].increment();
+			INSTANCE.comparisons[operation.ordinal()].add(count);
+		}
+	}
+
+	/**
+	 * Registers a new tree, whose height is reported until it is no longer used.
+	 * @param tree the tree
+	 */
+	static void tree(AVLTree<?> tree) {
+		if (ENABLED) {
+			INSTANCE.trees.add(new WeakReference<AVLTree<?>>(tree));
+		}
+	}
+
+	/*
+	 * The largest current height of the registered trees, and the largest
+	 * current height / log2(size + 1) of those with more than one element, times 1000.
+	 */
+	private long[] heights() {
+		long[] heights = new long[2];
+		for (Iterator<WeakReference<AVLTree<?>>> i = trees.iterator(); i.hasNext(); ) {
+			AVLTree<?> tree = i.next().get();
+			if (tree == null) {
+				i.remove();
+				continue;
+			}
+			int[] shape = tree.shape();
+			heights[0] = Math.max(heights[0], shape[0]);
+			if (shape[1] > 1) {
+				double log2 = Math.log(shape[1] + 1) / Math.log(2);
+				heights[1] = Math.max(heights[1], (long) (1000 * shape[0] / log2));
+			}
+		}
+		return heights;
+	}
+
+	/**
+	 * Counts the rows read from a file.
+	 * @param read the number of rows read, including the rejected ones
+	 * @param rejected the number of rejected rows, indexed by Reject ordinal
+	 * @param nanos the time it took to read them
+	 */
+	static void rows(long read, int[] rejected, long nanos) {
+		if (ENABLED) {
+			INSTANCE.rows.add(read);
+			INSTANCE.readNanos.add(nanos);
+			for (int i = 0; i < rejected.length; i++) {
+				INSTANCE.rejected[i].add(rejected[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the start time of a query to pass to query, or 0 if counting is off.
+	 * @return System.nanoTime() or 0
+	 */
+	static long start() {
+		return ENABLED ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records the latency of a query.
+	 * @param query the query
+	 * @param start the value returned by start() when the query began
+	 */
+	static void query(Query query, long start) {
+		if (ENABLED) {
+			long nanos = Math.max(0, System.nanoTime() - start);
+			INSTANCE.latencies[query.ordinal()].incrementAndGet(bucket(nanos));
+			INSTANCE.queryNanos[query.ordinal()].add(nanos);
+		}
+	}
+
+	/*
+	 * Index of the histogram bucket of a latency: the power of two and the next
+	 * SUB_BITS bits below the highest bit.
+	 */
+	private static int bucket(long nanos) {
+		if (nanos < (1 << SUB_BITS)) {
+			return (int) nanos;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int sub = (int) (nanos >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+		return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+	}
+
+	/*
+	 * The largest latency that falls into a bucket.
+	 */
+	private static long bucketLimit(int bucket) {
+		if (bucket < (1 << SUB_BITS)) {
+			return bucket;
+		}
+		int exponent = (bucket >>> SUB_BITS) + SUB_BITS - 1;
+		long sub = bucket & ((1 << SUB_BITS) - 1);
+		return ((1L << exponent) + ((sub + 1) << (exponent - SUB_BITS))) - 1;
+	}
+
+	/**
+	 * Returns the metrics object, to read it or register it elsewhere.
+	 * @return the single instance
+	 */
+	public static Metrics get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server, once.
+	 * @throws JMException if the bean cannot be registered
+	 */
+	public static synchronized void register() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		if (!server.isRegistered(name)) {
+			server.registerMBean(INSTANCE, name);
+		}
+	}
+
+	/**
+	 * Returns all counters at this moment. The counters are read one after the
+	 * other while they may change, so the values are not an atomic snapshot.
+	 * @return the counters keyed by name, in alphabetical order
+	 */
+	public static Map<String, Long> snapshot() {
+		return INSTANCE.getSnapshot();
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return ENABLED;
+	}
+
+	@Override
+	public Map<String, Long> getSnapshot() {
+		TreeMap<String, Long> values = new TreeMap<String, Long>();
+		for (Rotation r : Rotation.values()) {
+			values.put("tree.rotations." + r, rotations[r.ordinal()].sum());
+		}
+		for (Operation o : Operation.values()) {
+			values.put("tree.operations." + o, operations[o.ordinal()].sum());
+			values.put("tree.comparisons." + o, comparisons[o.ordinal()].sum());
+		}
+		long[] heights = heights();
+		values.put("tree.maxHeight", heights[0]);
+		values.put("tree.maxHeightRatio.permille", heights[1]);
+		values.put("ingest.rows", rows.sum());
+		values.put("ingest.nanos", readNanos.sum());
+		values.put("ingest.rowsPerSecond", (long) getRowsPerSecond());
+		for (Reject r : Reject.values()) {
+			values.put("ingest.rejected." + r, rejected[r.ordinal()].sum());
+		}
+		for (Query q : Query.values()) {
+			AtomicLongArray histogram = latencies[q.ordinal()];
+			long[] counts = new long[BUCKETS];
+			long count = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				counts[i] = histogram.get(i);
+				count += counts[i];
+			}
+			String prefix = "query." + q + ".";
+			values.put(prefix + "count", count);
+			values.put(prefix + "meanNanos", count == 0 ? 0 : queryNanos[q.ordinal()].sum() / count);
+			values.put(prefix + "p50Nanos", percentile(counts, count, 0.50));
+			values.put(prefix + "p99Nanos", percentile(counts, count, 0.99));
+			values.put(prefix + "maxNanos", percentile(counts, count, 1.0));
+		}
+		return values;
+	}
+
+	/*
+	 * The upper limit of the bucket that holds the given fraction of the latencies.
+	 */
+	private static long percentile(long[] counts, long count, double p) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(p * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return bucketLimit(i);
+			}
+		}
+		return bucketLimit(counts.length - 1);
+	}
+
+	@Override
+	public Map<String, Double> getComparisonsPerOperation() {
+		TreeMap<String, Double> values = new TreeMap<String, Double>();
+		for (Operation o : Operation.values()) {
+			long n = operations[o.ordinal()].sum();
+			values.put(o.toString(), n == 0 ? 0 : (double) comparisons[o.ordinal()].sum() / n);
+		}
+		return values;
+	}
+
+	@Override
+	public double getMaxHeightRatio() {
+		return heights()[1] / 1000.0;
+	}
+
+	@Override
+	public double getRowsPerSecond() {
+		long nanos = readNanos.sum();
+		return nanos == 0 ? 0 : rows.sum() * 1e9 / nanos;
+	}
+
+	@Override
+	public void reset() {
+		for (LongAdder[] group : new LongAdder[][] {rotations, operations, comparisons, rejected, queryNanos}) {
+			for (LongAdder adder : group) {
+				adder.reset();
+			}
+		}
+		rows.reset();
+		readNanos.reset();
+		for (AtomicLongArray histogram : latencies) {
+			for (int i = 0; i < BUCKETS; i++) {
+				histogram.set(i, 0);
+			}
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package project5;
+
+import java.util.Map;
+
+/**
+ * The management interface of Metrics, registered as project5:type=Metrics
+ * with the platform MBean server so that JConsole or any other JMX client can
+ * watch a running program. All times are in nanoseconds.
+ *
+ * @author Zhenghan Zhang
+ */
+public interface MetricsMXBean {
+
+	/**
+	 * get whether the metrics are collected; set with -Dproject5.metrics=true
+	 * @return true if the counters are updated
+	 */
+	boolean isEnabled();
+
+	/**
+	 * get all counters, keyed by names like tree.rotations.LL or query.TOP_K.p99Nanos
+	 * @return the value of every counter at this moment
+	 */
+	Map<String, Long> getSnapshot();
+
+	/**
+	 * get the average number of comparisons of the tree operations
+	 * @return the comparisons per operation, keyed by ADD, REMOVE, LOOKUP and QUERY
+	 */
+	Map<String, Double> getComparisonsPerOperation();
+
+	/**
+	 * get the largest ratio of the current height of a tree to log2 of its size,
+	 * over the trees in use; the AVL property keeps it below about 1.44
+	 * @return the ratio, 0 if no tree has more than one element
+	 */
+	double getMaxHeightRatio();
+
+	/**
+	 * get the speed of reading the file, over all loads and refreshes
+	 * @return the rows read per second
+	 */
+	double getRowsPerSecond();
+
+	/**
+	 * Sets all counters to 0. The heights are read from the trees and are not reset.
+	 */
+	void reset();
+}
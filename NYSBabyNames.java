@@ -6,6 +6,10 @@ import java.util.*;
  * @author Zhenghan Zhang
  */
 public class NYSBabyNames{
+	//size of the cache of recently queried histograms
+	private static final long CACHE_BYTES = 16 << 20;
+	//tokenizer of splitCSVLine, one per thread
+	private static final ThreadLocal<CSVTokenizer> TOKENIZER = ThreadLocal.withInitial(CSVTokenizer::new);
 	
 	/** 
 	 * Splits the given line of a CSV file according to commas and double quotes
@@ -13,93 +17,52 @@ public class NYSBabyNames{
 	 * @author Joanna Klukowska
 	 * @param textLine	a line of text to be passed
 	 * @return an Arraylist object containing all individual entries found on that line
+	 * @see CSVTokenizer for splitting many lines without creating a String per entry
 	 */
-    private static ArrayList<String> splitCSVLine(String textLine) {
+    static ArrayList<String> splitCSVLine(String textLine) {
 	
-		ArrayList<String> entries = new ArrayList<String>(); 
-		int lineLength = textLine.length(); 
-		StringBuffer nextWord = new StringBuffer(); 
-		char nextChar; 
-		boolean insideQuotes = false; 
-		boolean insideEntry= false;
-		
-		// iterate over all characters in the textLine
-		for (int i = 0; i < lineLength; i++) {
-			
-			nextChar = textLine.charAt(i);
-			
-			// handle smart quotes as well as regular quotes
-			if (nextChar == '"' || nextChar == '\u201C' || nextChar =='\u201D') {
-					
-				// change insideQuotes flag when nextChar is a quote
-				if (insideQuotes) {
-					
-					insideQuotes = false; 
-					insideEntry = false;
-					
-				} else {
-					
-					insideQuotes = true; 
-					insideEntry = true;
-					
-				}
-				
-			} else if (Character.isWhitespace(nextChar)) {
-				
-				if ( insideQuotes || insideEntry ) {
-					
-				    // add it to the current entry 
-					nextWord.append( nextChar );
-					
-				} else { 
-					
-					// skip all spaces between entries
-					continue; 
-					
-				}
-				
-			} else if ( nextChar == ',') {
-				
-				if (insideQuotes){ // comma inside an entry
-					nextWord.append(nextChar);
-					
-				} else { 
-					
-					// end of entry found
-					insideEntry = false;
-					entries.add(nextWord.toString());
-					nextWord = new StringBuffer();
-					
-				}
-				
-			} else {
-				
-				// add all other characters to the nextWord
-				nextWord.append(nextChar);
-				insideEntry = true;
-				
-			} 
-			
-		}
-		
-		// add the last word ( assuming not empty ) 
-		// trim the white space before adding to the list 
-		if (!nextWord.toString().equals("")) {
-			
-			entries.add(nextWord.toString().trim());
-			
+		CSVTokenizer tokenizer = TOKENIZER.get();
+		int fieldCount = tokenizer.tokenize(textLine);
+		ArrayList<String> entries = new ArrayList<String>(fieldCount); 
+		for (int i = 0; i < fieldCount; i++) {
+			entries.add(tokenizer.stringField(i));
 		}
-	
 		return entries;
 	}
 
 	/**
-	 * The main() method of this program. 
-	 * @param args array of Strings provided on the command line when the program is started; 
-	 * the first string should be the name of the input file containing the csv file of names. 
+	 * Appends the histogram of the fractions of a name to a StringBuilder: one line
+	 * per year with the year, the percentage and one bar per 0.01 percent.
+	 * @param s the StringBuilder to append to
+	 * @param firstYear the year of the first fraction
+	 * @param fractions the fractions of consecutive years, or null if the name was not found
+	 * @return the StringBuilder
 	 */
+	static StringBuilder appendHistogram(StringBuilder s, int firstYear, double[] fractions) {
+		if (fractions == null) {
+			return s.append("No such name/county in the dataset.\n");
+		}
+		for (int i = 0; i < fractions.length; i++) {
+			double p = fractions[i];
+			s.append(firstYear + i).append(" (").append(String.format("%5.4f", p * 100)).append("): ");
+			for (int j = 0; j < Math.ceil(p * 10000); j++) {
+				s.append('|');
+			}
+			s.append('\n');
+		}
+		return s;
+	}
+
 	/**
-	 * @param args
+	 * The main() method of this program. 
+	 * @param args array of Strings provided on the command line when the program is started; 
+	 * the first string should be the name of the input file containing the csv file of names
+	 * (or a snapshot file written before); the optional second string is the name of a snapshot
+	 * file to write after reading a csv file. The option -batch followed by the name of a file
+	 * of queries answers these queries instead of asking the user, with -format text, csv or
+	 * json (default text) and -out followed by the name of the file for the results (default
+	 * the standard output). The option -serve followed by a port number answers queries over
+	 * HTTP instead (see QueryServer). 
 	 */
 	public static void main(String[] args) {
 		//verify that the command line argument exists 
@@ -118,57 +81,101 @@ public class NYSBabyNames{
 											" cannot be opened.\n");
 			System.exit(1);
 		}	
-		//open the file for reading 
-		Scanner inNames = null; 		
+		//the options of batch mode; any other second argument is the snapshot file
+		File snapshotFile = null;
+		File queryFile = null;
+		File outputFile = null;
+		BatchQueries.Format format = BatchQueries.Format.TEXT;
+		int port = -1;
 		try {
-			inNames = new Scanner (babyNamesFile) ;
-		} catch (FileNotFoundException e) {
-			System.err.println("Error: the file "+babyNamesFile.getAbsolutePath()+
-											" cannot be opened.\n");
+			for (int i = 1; i < args.length; i++) {
+				if (args[i].equals("-batch") && i + 1 < args.length) {
+					queryFile = new File(args[++i]);
+				} else if (args[i].equals("-format") && i + 1 < args.length) {
+					format = BatchQueries.format(args[++i]);
+				} else if (args[i].equals("-out") && i + 1 < args.length) {
+					outputFile = new File(args[++i]);
+				} else if (args[i].equals("-serve") && i + 1 < args.length) {
+					port = Integer.parseInt(args[++i]);
+				} else if (snapshotFile == null && !args[i].startsWith("-")) {
+					snapshotFile = new File(args[i]);
+				} else {
+					throw new IllegalArgumentException(args[i]);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println("Usage Error: unknown argument "+e.getMessage()+"; the program expects a file name, "
+					+ "an optional snapshot file and the options -batch file, -format text|csv|json, -out file and -serve port.\n");
 			System.exit(1);
 		}
-		
-		
-		
-		//read the content of the file and save the data in a list of names
-
-		ArrayList<YearNames> years = new ArrayList<YearNames>();
-		for (int i=0; i<=118; i++) {
-			years.add(new YearNames(1900+i));
-		}
-		int min_year = 99999;
-		int max_year = 0;
-		Name temp_name=new Name("fuck", "m", 2007, "fuck");
-		int temp_year=0;
-		while (inNames.hasNextLine()) {
-			ArrayList<String> temp = null;
+		//the metrics are published through JMX when they are collected
+		if (Metrics.ENABLED) {
 			try {
-				String tokens = inNames.nextLine();
-//				System.out.println(tokens);
-				temp = splitCSVLine(tokens);
+				Metrics.register();
+			} catch (javax.management.JMException e) {
+				System.err.println("Warning: the metrics cannot be registered: "+e.getMessage()+"\n");
 			}
-			catch (NoSuchElementException ex ) {
-				//caused by an incomplete or miss-formatted line in the input file
-				continue; 	
-			}
-			try {
-				temp_name = new Name(temp.get(1),temp.get(3),(int)Integer.parseInt(temp.get(4)),temp.get(2));
-				//System.out.println(temp_name);
-				temp_year = Integer.parseInt(temp.get(0)) - 1900;
-				min_year = Math.min(min_year, temp_year);
-				max_year = Math.max(max_year, temp_year);
-				years.get(temp_year).add(temp_name);
-			}
-			catch (IllegalArgumentException ex ) {
-				//ignore this exception and skip to the next line 
+		}
+		//read the content of the file and save the data in a list of names
+		NamesQueries data = null;
+		try {
+			if (NamesSnapshot.isSnapshot(babyNamesFile)) {
+				data = new HistogramCache(NamesSnapshot.open(babyNamesFile), CACHE_BYTES);
 			}
-			catch (IndexOutOfBoundsException ex1) {
-				//Ignore
+			else {
+				NamesDataset dataset = new ParallelLoader().load(babyNamesFile);
+				//the cache follows every change of the dataset from now on, its misses are read from the series index
+				HistogramCache cache = new HistogramCache(dataset, CACHE_BYTES);
+				dataset.addListener(cache);
+				ArrayList<YearNames> years = dataset.getYears();
+				if (dataset.lastName != null) {
+					years.get(dataset.lastYear).remove(dataset.lastName);
+				}
+				//the optional second argument names a snapshot file to write
+				if (snapshotFile != null) {
+					try {
+						dataset.save(snapshotFile);
+					} catch (IOException e) {
+						System.err.println("Error: the file "+snapshotFile.getAbsolutePath()+
+														" cannot be written.\n");
+						System.exit(1);
+					}
+				}
+				data = cache;
 			}
+		} catch (IOException e) {
+			System.err.println("Error: the file "+babyNamesFile.getAbsolutePath()+
+											" cannot be opened.\n");
+			System.exit(1);
 		}
+		int min_year = data.getMinYear() - NamesDataset.FIRST_YEAR;
+		int max_year = data.getMaxYear() - NamesDataset.FIRST_YEAR;
 		
-		years.get(temp_year).remove(temp_name);
+		//server mode: queries are answered over HTTP until the program is stopped
+		if (port >= 0) {
+			try {
+				QueryServer server = new QueryServer(data, port);
+				server.start();
+				System.out.println("Serving queries on http://localhost:"+server.getPort()+"/");
+			} catch (IOException e) {
+				System.err.println("Error: the port "+port+" cannot be opened.\n");
+				System.exit(1);
+			}
+			return;
+		}
 		
+		//batch mode: all results go through one buffered writer
+		if (queryFile != null) {
+			try (BufferedReader queries = new BufferedReader(new InputStreamReader(new FileInputStream(queryFile), "utf-8"));
+					Writer results = new BufferedWriter(new OutputStreamWriter(outputFile == null ? 
+							new FileOutputStream(FileDescriptor.out) : new FileOutputStream(outputFile), "utf-8"), 1 << 16)) {
+				new BatchQueries(data, format).run(queries, results);
+			} catch (IOException e) {
+				System.err.println("Error: the queries cannot be answered: "+e.getMessage()+"\n");
+				System.exit(1);
+			}
+			return;
+		}
 
 		//interactive mode: 
 		
@@ -186,28 +193,10 @@ public class NYSBabyNames{
 			if (!userValue.equalsIgnoreCase("q")) {
 					System.out.println("Please enter a county (ALL, for search in all counties):" );
 					county = userInput.nextLine();
-						int m = 0;
-						for (int i= min_year; i <= max_year; i++) {
-							if (years.get(i).getCountByNameCounty(userValue, county) != 0) {
-								m += 1;
-							}
-						}
-				if (m == 0) {
-					System.out.print("No such name/county in the dataset.\n");
-				}else {	
-					for (int i= min_year; i <= max_year; i++) {		
-					//print the histogram
-						System.out.print(i+1900);
-						double p = years.get(i).getFractionByNameCounty(userValue, county);
-						System.out.print(" (");
-						System.out.printf("%5.4f", p * 100);
-						System.out.print("): ");
-						for (int j = 0; j < Math.ceil(p * 10000); j++ ) {
-							System.out.print("|");
-						}
-					System.out.print("\n");
-					}
-				}
+						//counts of all years come from one lookup in the series index
+						double[] fractions = data.getFractions(userValue, county, min_year + 1900, max_year + 1900);
+				//the histogram is built in memory and printed at once
+				System.out.print(appendHistogram(new StringBuilder(), min_year + 1900, fractions));
 			}
 			 
 
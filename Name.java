@@ -1,37 +1,138 @@
 package project5;
 
 /**
- * This is a public class that can instantiate a class Name
+ * This is a public class that can instantiate a class Name. The name and the
+ * county are stored as ids of the shared StringDictionary objects and the gender
+ * as a single byte, so a Name takes only a few bytes no matter how long its
+ * strings are.
  * @author Zhenghan Zhang
  */
 public class Name implements Comparable<Name>{
-	private String name;
-	private String gender;
+	//spelling of the genders by gender id
+	private static final String[] GENDERS = {"F", "M"};
+	
+	//id of the name in StringDictionary.NAMES
+	private int name;
+	//id of the county in StringDictionary.COUNTIES
+	private short county;
+	//0 for female, 1 for male
+	private byte gender;
 	private int count;
-	private String county;
 	
 	/**
-	 * Constructs a new Name object with specified name,gender and count. 
+	 * Constructs a new Name object with specified name,gender and count. All
+	 * fields are checked before the name and the county are added to the
+	 * dictionaries, so an invalid row leaves no trace in them.
 	 * @param name String name.
 	 * @param gender Gender of the name.
 	 * @param count int value of occurrence of a name.
 	 * @throws IllegalArgumentException if any of the parameters are invalid
 	 */
 	public Name(String name, String gender, int count, String county) throws IllegalArgumentException {
-		setName(name);
+		checkName(name);
 		setGender(gender);
 		setCount(count);
 		setCounty(county);
+		setName(name);
+	}
+	
+	/**
+	 * Constructs a new Name object from dictionary ids.
+	 * @param nameId id of the name in StringDictionary.NAMES
+	 * @param countyId id of the county in StringDictionary.COUNTIES
+	 * @param genderId 0 for female, 1 for male
+	 * @param count int value of occurrence of a name.
+	 * @throws IllegalArgumentException if any of the parameters are invalid
+	 */
+	Name(int nameId, int countyId, int genderId, int count) throws IllegalArgumentException {
+		if (nameId < 0 || nameId >= StringDictionary.NAMES.size()
+				|| countyId < 0 || countyId >= StringDictionary.COUNTIES.size()
+				|| genderId < 0 || genderId >= GENDERS.length) {
+			throw new IllegalArgumentException("Invalid dictionary id");
+		}
+		this.name = nameId;
+		this.county = (short) countyId;
+		this.gender = (byte) genderId;
+		setCount(count);
+	}
+	
+	/**
+	 * Returns a Name with count 0 that can be used to look up a stored Name, without
+	 * adding anything to the dictionaries.
+	 * @param name String name.
+	 * @param gender Gender of the name.
+	 * @param county the county
+	 * @return the Name, or null if the name or the county never occurred or the gender is invalid
+	 */
+	static Name find(String name, String gender, String county) {
+		int n = StringDictionary.NAMES.lookup(name);
+		int c = StringDictionary.COUNTIES.lookup(county);
+		int g = genderId(gender);
+		if (n < 0 || c < 0 || g < 0) {
+			return null;
+		}
+		return new Name(n, c, g, 0);
+	}
+	
+	/**
+	 * Returns the id of a gender
+	 * @param gender the gender, f or m in any case
+	 * @return 0 for female, 1 for male, -1 if the gender is invalid
+	 */
+	static int genderId(String gender) {
+		if (gender == null) {
+			return -1;
+		}
+		if (gender.equalsIgnoreCase("f")) {
+			return 0;
+		}
+		if (gender.equalsIgnoreCase("m")) {
+			return 1;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Returns the spelling of a gender id
+	 * @param genderId 0 for female, 1 for male
+	 * @return F or M
+	 */
+	static String gender(int genderId) {
+		return GENDERS[genderId];
 	}
 	
 	/**
 	 * get the name
-	 * @return the name of the Name
+	 * @return the name of the Name, as spelled the first time it was seen
 	 */
 	public String getName() {
+		return StringDictionary.NAMES.get(this.name);
+	}
+	
+	/**
+	 * get the id of the name
+	 * @return the id of the name in StringDictionary.NAMES
+	 */
+	public int getNameId() {
 		return this.name;
 	}
 	
+	/**
+	 * get the gender
+	 * @return the gender of the Name, F or M
+	 */
+	public String getGender() {
+		return GENDERS[this.gender];
+	}
+	
+	/**
+	 * get the id of the gender
+	 * @return 0 for female, 1 for male
+	 */
+	public int getGenderId() {
+		return this.gender;
+	}
+	
 	/**
 	 * get the count
 	 * @return the count of the Name
@@ -43,11 +144,19 @@ public class Name implements Comparable<Name>{
 	/**
 	 * this method get the corresponding county
 	 * 
-	 * @return the county of babies
+	 * @return the county of babies, as spelled the first time it was seen
 	 * 
 	 */
 	public String getCounty() {
-		return county;
+		return StringDictionary.COUNTIES.get(county);
+	}
+	
+	/**
+	 * get the id of the county
+	 * @return the id of the county in StringDictionary.COUNTIES
+	 */
+	public int getCountyId() {
+		return this.county;
 	}
 	
 	/**
@@ -56,10 +165,19 @@ public class Name implements Comparable<Name>{
 	 * @throws IlleagalArgumentException if name is empty
 	 */
 	private void setName(String name) throws IllegalArgumentException{
+		checkName(name);
+		this.name = StringDictionary.NAMES.id(name);
+	}
+	
+	/**
+	 * Checks a name without adding it to the dictionary
+	 * @param name the name.
+	 * @throws IlleagalArgumentException if name is empty
+	 */
+	private static void checkName(String name) throws IllegalArgumentException{
 		if ((name != null && name.equals("")) || name == null) {
 			throw new IllegalArgumentException("Invalid Name. Name should not be empty");
 		}
-		this.name = name;
 	}
 	
 	/**
@@ -68,10 +186,11 @@ public class Name implements Comparable<Name>{
 	 * @throws IlleagalArgumentException if count is not f or m
 	 */
 	private void setGender(String gender) throws IllegalArgumentException{
-		if ((gender != null && !gender.equalsIgnoreCase("f") && !gender.equalsIgnoreCase("m") )|| gender == null) {
+		int id = genderId(gender);
+		if (id < 0) {
 			throw new IllegalArgumentException("Invalid Gender. Gender should be either 'f' or 'm' ");
 		}
-		this.gender = gender;
+		this.gender = (byte) id;
 	}
 	
 	/**
@@ -96,7 +215,7 @@ public class Name implements Comparable<Name>{
 		if(county == null || county.length() == 0) {
 			throw new IllegalArgumentException("Invalid name for county.County should not be empty");
 		}
-		this.county = county;
+		this.county = (short) StringDictionary.COUNTIES.id(county);
 	}
 	
 	//override the equals method
@@ -110,10 +229,11 @@ public class Name implements Comparable<Name>{
 		if (!(obj instanceof Name))
 			return false;
 		Name other = (Name) obj;
-		if (this.name.equalsIgnoreCase(other.name) && 
-				this.gender.equalsIgnoreCase(other.gender) && 
+		//ids are equal exactly when the strings are equal ignoring case
+		if (this.name == other.name && 
+				this.gender == other.gender && 
 				this.count == (other.count) &&
-				this.county.equalsIgnoreCase(other.county))
+				this.county == other.county)
 			return true;
 		return false;
 	}
@@ -122,25 +242,19 @@ public class Name implements Comparable<Name>{
 	
 	@Override
 	public int compareTo(Name n) {
-		if (this.name.compareToIgnoreCase(n.name) != 0) {
-			return this.name.compareToIgnoreCase(n.name);
-		}else {
-			if (this.county.compareToIgnoreCase(n.county) != 0) {
-				return this.county.compareToIgnoreCase(n.county);
-			}
-			else {
-				if (this.gender.compareToIgnoreCase(n.gender) != 0) {
-					return this.gender.compareToIgnoreCase(n.gender);
-				}
-				return 0;
-			}
+		if (this.name != n.name) {
+			return StringDictionary.NAMES.compare(this.name, n.name);
+		}
+		if (this.county != n.county) {
+			return StringDictionary.COUNTIES.compare(this.county, n.county);
 		}
+		return this.gender - n.gender;
 	}
 	
 	//The toString method
 	
 	public String toString () { 
-			return String.format("%s,%s,%d,%s",name,gender,count,county); 
+			return String.format("%s,%s,%d,%s",getName(),getGender(),count,getCounty()); 
 		}
 	
-}
\ No newline at end of file
+}
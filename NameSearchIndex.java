@@ -0,0 +1,296 @@
+package project5;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class finds names by similarity or by a part of their spelling among
+ * all distinct names of a StringDictionary, without scanning the trees of the
+ * years. Every name is indexed by the trigrams (three consecutive characters)
+ * of its case folded key, with ^ and $ marking its start and end, and by a
+ * phonetic code in the style of Soundex, so that for example Jaxon and Jackson
+ * share the code J250.
+ *
+ * The dictionary only grows, so the index is kept up to date by indexing the
+ * ids that were added since the last update. Queries do that first, which
+ * keeps them correct after new rows were read. The names found can be passed
+ * on to the count and histogram queries; names that are in the dictionary but
+ * in no year have a count of 0.
+ *
+ * @author Zhenghan Zhang
+ */
+public class NameSearchIndex {
+	//smallest trigram similarity of a name with a different phonetic code to be reported as similar
+	private static final double MIN_SIMILARITY = 0.45;
+	//added to the similarity of names with the same phonetic code
+	private static final double PHONETIC_BONUS = 0.5;
+
+	private StringDictionary dictionary;
+	//ids of the names that contain a trigram, keyed by the packed trigram
+	private HashMap<Long, Postings> trigrams = new HashMap<Long, Postings>();
+	//ids of the names with a phonetic code
+	private HashMap<String, Postings> phonetic = new HashMap<String, Postings>();
+	//number of trigrams of every indexed id
+	private int[] trigramCounts = new int[64];
+	//the indexed ids in alphabetical order
+	private int[] sorted = new int[0];
+	//ids below this are indexed
+	private int indexed;
+	//guards the postings; queries and updates may run in different threads
+	private OptimisticLock lock = new OptimisticLock();
+
+	/**
+	 * Creates an index of the names of a dictionary; the names it holds now are indexed right away.
+	 * @param dictionary the dictionary, usually StringDictionary.NAMES
+	 */
+	public NameSearchIndex(StringDictionary dictionary) {
+		this.dictionary = dictionary;
+		update();
+	}
+
+	/**
+	 * Indexes the names that were added to the dictionary since the last update.
+	 * @return the number of names that were indexed
+	 */
+	public int update() {
+		if (lock.readInt(() -> indexed) >= dictionary.size()) {
+			return 0;
+		}
+		long stamp = lock.writeLock();
+		try {
+			//another update may have indexed more names while this one waited for the lock
+			int from = indexed;
+			int size = dictionary.size();
+			if (from >= size) {
+				return 0;
+			}
+			if (size > trigramCounts.length) {
+				trigramCounts = Arrays.copyOf(trigramCounts, Math.max(size, trigramCounts.length * 2));
+			}
+			for (int id = from; id < size; id++) {
+				String key = dictionary.key(id);
+				long[] grams = trigrams(key, true);
+				trigramCounts[id] = grams.length;
+				for (long gram : grams) {
+					Postings p = trigrams.get(gram);
+					if (p == null) {
+						p = new Postings();
+						trigrams.put(gram, p);
+					}
+					p.add(id);
+				}
+				String code = phoneticCode(key);
+				if (!code.isEmpty()) {
+					phonetic.computeIfAbsent(code, c -> new Postings()).add(id);
+				}
+			}
+			sorted = merge(sorted, from, size);
+			indexed = size;
+			return size - from;
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * get the names that are spelled like a name or sound like it, most similar first
+	 * @param name a String of name, which may be misspelled
+	 * @param limit the largest number of names to return
+	 * @return the similar names as spelled in the dictionary; the name itself is
+	 * first if it is in the dictionary
+	 */
+	public List<String> similar(String name, int limit) {
+		update();
+		String key = StringDictionary.fold(name);
+		long[] grams = trigrams(key, true);
+		String code = phoneticCode(key);
+		return lock.readLocked(() -> {
+			//number of trigrams every candidate shares with the name
+			HashMap<Integer, int[]> common = new HashMap<Integer, int[]>();
+			for (long gram : grams) {
+				Postings p = trigrams.get(gram);
+				if (p == null) {
+					continue;
+				}
+				for (int i = 0; i < p.size; i++) {
+					common.computeIfAbsent(p.ids[i], id -> new int[1])[0]++;
+				}
+			}
+			Postings sounds = phonetic.get(code);
+			if (sounds != null) {
+				for (int i = 0; i < sounds.size; i++) {
+					common.computeIfAbsent(sounds.ids[i], id -> new int[1]);
+				}
+			}
+			ArrayList<Match> matches = new ArrayList<Match>();
+			for (Map.Entry<Integer, int[]> e : common.entrySet()) {
+				int id = e.getKey();
+				//Dice coefficient of the trigram sets
+				double score = 2.0 * e.getValue()[0] / (grams.length + trigramCounts[id]);
+				boolean sameSound = sounds != null && phoneticCode(dictionary.key(id)).equals(code);
+				if (score >= MIN_SIMILARITY || sameSound) {
+					matches.add(new Match(id, score + (sameSound ? PHONETIC_BONUS : 0)));
+				}
+			}
+			matches.sort((a, b) -> a.score != b.score ? Double.compare(b.score, a.score) : dictionary.compare(a.id, b.id));
+			ArrayList<String> names = new ArrayList<String>();
+			for (int i = 0; i < matches.size() && i < limit; i++) {
+				names.add(dictionary.get(matches.get(i).id));
+			}
+			return names;
+		});
+	}
+
+	/**
+	 * get the names that contain a text, ignoring case, in alphabetical order
+	 * @param text the part of the names to find
+	 * @param limit the largest number of names to return
+	 * @return the names as spelled in the dictionary
+	 */
+	public List<String> containing(String text, int limit) {
+		update();
+		String key = StringDictionary.fold(text);
+		long[] grams = trigrams(key, false);
+		return lock.readLocked(() -> {
+			//every trigram of the text is in the names that contain it; the rarest one has the fewest candidates
+			Postings candidates = null;
+			for (long gram : grams) {
+				Postings p = trigrams.get(gram);
+				if (p == null) {
+					return new ArrayList<String>();
+				}
+				if (candidates == null || p.size < candidates.size) {
+					candidates = p;
+				}
+			}
+			ArrayList<String> names = new ArrayList<String>();
+			if (candidates == null) {
+				//a text shorter than a trigram is looked for in all names, in alphabetical order until enough are found
+				for (int i = 0; i < sorted.length && names.size() < limit; i++) {
+					if (dictionary.key(sorted[i]).contains(key)) {
+						names.add(dictionary.get(sorted[i]));
+					}
+				}
+				return names;
+			}
+			ArrayList<Integer> found = new ArrayList<Integer>();
+			for (int i = 0; i < candidates.size; i++) {
+				if (dictionary.key(candidates.ids[i]).contains(key)) {
+					found.add(candidates.ids[i]);
+				}
+			}
+			found.sort(dictionary::compare);
+			for (int i = 0; i < found.size() && i < limit; i++) {
+				names.add(dictionary.get(found.get(i)));
+			}
+			return names;
+		});
+	}
+
+	/**
+	 * Computes the phonetic code of a name with the rules of American Soundex:
+	 * the first letter followed by three digits for the consonants that follow,
+	 * where similar sounding consonants share a digit. Characters other than the
+	 * letters a to z are ignored.
+	 * @param name a String of name
+	 * @return the code, like J250, or an empty String if the name has no letters
+	 */
+	public static String phoneticCode(String name) {
+		//digit of every letter; 0 for vowels, which separate equal digits, and - for h and w, which do not
+		final String digits = "01230120022455012623010202";
+		StringBuilder code = new StringBuilder(4);
+		char last = 0;
+		for (int i = 0; i < name.length() && code.length() < 4; i++) {
+			char c = Character.toLowerCase(name.charAt(i));
+			if (c < 'a' || c > 'z') {
+				continue;
+			}
+			char digit = (c == 'h' || c == 'w') ? '-' : digits.charAt(c - 'a');
+			if (code.length() == 0) {
+				code.append(Character.toUpperCase(c));
+				last = digit;
+				continue;
+			}
+			if (digit == '-') {
+				continue;
+			}
+			if (digit != '0' && digit != last) {
+				code.append(digit);
+			}
+			last = digit;
+		}
+		if (code.length() == 0) {
+			return "";
+		}
+		while (code.length() < 4) {
+			code.append('0');
+		}
+		return code.toString();
+	}
+
+	/*
+	 * Merges the ids from first to last (exclusive) into the alphabetically
+	 * sorted ids.
+	 */
+	private int[] merge(int[] ids, int first, int last) {
+		Integer[] added = new Integer[last - first];
+		for (int i = 0; i < added.length; i++) {
+			added[i] = first + i;
+		}
+		Arrays.sort(added, dictionary::compare);
+		int[] merged = new int[ids.length + added.length];
+		int i = 0;
+		int j = 0;
+		for (int k = 0; k < merged.length; k++) {
+			if (j == added.length || (i < ids.length && dictionary.compare(ids[i], added[j]) < 0)) {
+				merged[k] = ids[i++];
+			}
+			else {
+				merged[k] = added[j++];
+			}
+		}
+		return merged;
+	}
+
+	/*
+	 * Packs the distinct trigrams of a key into longs, with the start and end
+	 * marked if bounded is set.
+	 */
+	private static long[] trigrams(String key, boolean bounded) {
+		String s = bounded ? "^" + key + "$" : key;
+		long[] grams = new long[Math.max(0, s.length() - 2)];
+		for (int i = 0; i < grams.length; i++) {
+			grams[i] = ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+		}
+		return Arrays.stream(grams).distinct().toArray();
+	}
+
+	/*
+	 * A growing list of ids in ascending order.
+	 */
+	private static class Postings {
+		int[] ids = new int[4];
+		int size;
+
+		void add(int id) {
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			ids[size++] = id;
+		}
+	}
+
+	private static class Match {
+		int id;
+		double score;
+
+		Match(int id, double score) {
+			this.id = id;
+			this.score = score;
+		}
+	}
+}
@@ -0,0 +1,213 @@
+package project5;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class keeps the counts of every name over all years: for every name and
+ * county, and for every name in the whole state, the counts of consecutive
+ * years are stored in one int array. It also keeps the total count of every
+ * county and of the state per year, so the fractions of a name for a range of
+ * years are found with a single lookup instead of one tree search per year.
+ *
+ * The index is kept up to date as a listener of the YearNames it was loaded from.
+ * Queries may run while it is updated: they read optimistically and are
+ * repeated under a read lock if an update happened at the same time.
+ *
+ * @author Zhenghan Zhang
+ */
+public class NameSeries implements YearNames.Listener {
+	private static final int YEARS = NamesDataset.LAST_YEAR - NamesDataset.FIRST_YEAR + 1;
+	
+	//counts per year, keyed by key(nameId, countyId); county -1 is the whole state
+	private ConcurrentHashMap<Long, Series> series = new ConcurrentHashMap<Long, Series>();
+	//totals per year, indexed by county id + 1 and year - FIRST_YEAR; row 0 is the whole state
+	private int[][] totals = new int[1][YEARS];
+	//guards the counts and totals
+	private OptimisticLock lock = new OptimisticLock();
+	
+	/**
+	 * Adds all names of a year to the index.
+	 * @param year the names of one year
+	 */
+	public void load(YearNames year) {
+		for (Name name : year.first(year.size())) {
+			added(year, name);
+		}
+	}
+	
+	/**
+	 * Adds the count of a name that was added to a year.
+	 * @param year the year the name was added to
+	 * @param name the name
+	 */
+	@Override
+	public void added(YearNames year, Name name) {
+		update(year.getYear(), name, name.getCount());
+	}
+	
+	/**
+	 * Subtracts the count of a name that was removed from a year.
+	 * @param year the year the name was removed from
+	 * @param name the name, with the count it was stored with
+	 */
+	@Override
+	public void removed(YearNames year, Name name) {
+		update(year.getYear(), name, -name.getCount());
+	}
+	
+	private void update(int year, Name name, int delta) {
+		int index = year - NamesDataset.FIRST_YEAR;
+		int county = name.getCountyId();
+		long stamp = lock.writeLock();
+		try {
+			get(key(name.getNameId(), county), true).add(index, delta);
+			get(key(name.getNameId(), -1), true).add(index, delta);
+			if (county + 1 >= totals.length) {
+				int length = Math.max(county + 2, totals.length * 2);
+				int[][] larger = Arrays.copyOf(totals, length);
+				for (int i = totals.length; i < length; i++) {
+					larger[i] = new int[YEARS];
+				}
+				totals = larger;
+			}
+			totals[0][index] += delta;
+			totals[county + 1][index] += delta;
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	/**
+	 * get the counts of a name in a county for a range of years
+	 * @param name a String of name
+	 * @param county the name of the county (ALL for the whole state)
+	 * @param firstYear the first year of the range
+	 * @param lastYear the last year of the range
+	 * @return the count of every year of the range, 0 for years without that name
+	 */
+	public int[] getCounts(String name, String county, int firstYear, int lastYear) {
+		Series s = find(name, county);
+		return lock.read(() -> {
+			int[] counts = new int[Math.max(0, lastYear - firstYear + 1)];
+			if (s != null) {
+				for (int y = firstYear; y <= lastYear; y++) {
+					counts[y - firstYear] = s.get(y - NamesDataset.FIRST_YEAR);
+				}
+			}
+			return counts;
+		});
+	}
+	
+	/**
+	 * get the fractions of the babies of a name in a county for a range of years,
+	 * with the same values as YearNames.getFractionByNameCounty
+	 * @param name a String of name
+	 * @param county the name of the county (ALL for the whole state)
+	 * @param firstYear the first year of the range
+	 * @param lastYear the last year of the range
+	 * @return the fraction of every year of the range, or null if the name has no
+	 * babies in that county in any year of the range
+	 */
+	public double[] getFractions(String name, String county, int firstYear, int lastYear) {
+		Series s = find(name, county);
+		if (s == null || firstYear > lastYear) {
+			return null;
+		}
+		return lock.read(() -> {
+			int[] total = totals(county);
+			double[] fractions = new double[lastYear - firstYear + 1];
+			boolean found = false;
+			for (int y = firstYear; y <= lastYear; y++) {
+				int m = s.get(y - NamesDataset.FIRST_YEAR);
+				int i = total(total, y - NamesDataset.FIRST_YEAR);
+				if (m != 0 || i != 0) {
+					fractions[y - firstYear] = (double) m / i;
+				}
+				found |= m != 0;
+			}
+			return found ? fractions : null;
+		});
+	}
+	
+	/**
+	 * get the total number of babies in a county in one year
+	 * @param county the name of the county (ALL for the whole state)
+	 * @param year the year
+	 * @return the sum of the counts of all names in that county
+	 */
+	public int getTotal(String county, int year) {
+		return lock.readInt(() -> total(totals(county), year - NamesDataset.FIRST_YEAR));
+	}
+	
+	private static int total(int[] total, int index) {
+		return (total == null || index < 0 || index >= YEARS) ? 0 : total[index];
+	}
+	
+	private Series find(String name, String county) {
+		int nameId = StringDictionary.NAMES.lookup(name);
+		int countyId = county.equalsIgnoreCase("ALL") ? -1 : StringDictionary.COUNTIES.lookup(county);
+		if (nameId < 0 || (countyId < 0 && !county.equalsIgnoreCase("ALL"))) {
+			return null;
+		}
+		return get(key(nameId, countyId), false);
+	}
+	
+	private int[] totals(String county) {
+		int[][] t = totals;
+		if (county.equalsIgnoreCase("ALL")) {
+			return t[0];
+		}
+		int countyId = StringDictionary.COUNTIES.lookup(county);
+		if (countyId < 0 || countyId + 1 >= t.length) {
+			return null;
+		}
+		return t[countyId + 1];
+	}
+	
+	private Series get(long key, boolean create) {
+		Series s = series.get(key);
+		if (s == null && create) {
+			s = new Series();
+			series.put(key, s);
+		}
+		return s;
+	}
+	
+	private static long key(int nameId, int countyId) {
+		return ((long) nameId << 16) | (countyId + 1);
+	}
+	
+	/**
+	 * The counts of one name in one county, from the first to the last year in
+	 * which the name was seen.
+	 */
+	private static class Series {
+		//index of the year of counts[0]
+		int from;
+		int[] counts = new int[0];
+		
+		int get(int index) {
+			index -= from;
+			return (index < 0 || index >= counts.length) ? 0 : counts[index];
+		}
+		
+		void add(int index, int delta) {
+			if (counts.length == 0) {
+				from = index;
+				counts = new int[1];
+			}
+			else if (index < from) {
+				int[] larger = new int[counts.length + from - index];
+				System.arraycopy(counts, 0, larger, from - index, counts.length);
+				counts = larger;
+				from = index;
+			}
+			else if (index - from >= counts.length) {
+				counts = Arrays.copyOf(counts, index - from + 1);
+			}
+			counts[index - from] += delta;
+		}
+	}
+}
@@ -0,0 +1,291 @@
+package project5;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * This class precomputes the sums of the counts over the dimensions year,
+ * county, gender and name in dense arrays indexed by dictionary ids, so that
+ * aggregate questions are answered with a few array reads instead of passes
+ * over the trees:
+ *
+ * year x county x gender - for example the births of every county per year,
+ * name x year x gender - for example the gender split of a name over time,
+ * name x county x gender - for example the counties where a name is most common.
+ *
+ * Every dimension has an extra slot for the sum over all its values, and the
+ * sums along the years are stored as prefix sums, so a sum over any range of
+ * years is the difference of two elements. Only a name in one county over
+ * part of the years is not in the cube; it is summed from the years.
+ *
+ * In the terms of OLAP, sum with one fixed value is a slice, sum with ranges
+ * or several fixed values is a dice, and groupBy rolls the cube up to one
+ * dimension.
+ *
+ * The cube is built from snapshots of the years in one parallel pass, one task
+ * per year, and it does not change afterwards; build it again to see names
+ * added later.
+ *
+ * @author Zhenghan Zhang
+ */
+public class NamesCube {
+	//value of a dimension that stands for all values
+	public static final int ANY = -1;
+
+	/**
+	 * The dimensions that groupBy can group by.
+	 */
+	public enum Dimension { YEAR, COUNTY, GENDER, NAME }
+
+	//number of genders; slot 2 of the gender dimension is the sum of both
+	private static final int GENDERS = 3;
+
+	private int firstYear;
+	//number of years, counties and names of the cube; the county slot counties is the sum of all
+	private int years;
+	private int counties;
+	private int names;
+	//prefix sums over the years, indexed by [year - firstYear + 1][county][gender]
+	private long[] yearCounty;
+	//prefix sums over the years, indexed by [name][year - firstYear + 1][gender]
+	private int[] nameYear;
+	//sums over all years, indexed by [name][county][gender]
+	private int[] nameCounty;
+	//the years the cube was built from, for the sums that are not in it
+	private YearNames[] snapshots;
+
+	private NamesCube() {
+	}
+
+	/**
+	 * Builds the cube of the names of a dataset. The years are read from
+	 * snapshots, so the dataset may change while the cube is built.
+	 * @param dataset the names of all years
+	 * @return the cube
+	 */
+	public static NamesCube build(NamesDataset dataset) {
+		NamesCube cube = new NamesCube();
+		int minYear = dataset.getMinYear();
+		int maxYear = dataset.getMaxYear();
+		cube.firstYear = minYear;
+		cube.years = Math.max(0, maxYear - minYear + 1);
+		cube.snapshots = new YearNames[cube.years];
+		for (int y = 0; y < cube.years; y++) {
+			cube.snapshots[y] = dataset.getYear(minYear + y).snapshot();
+		}
+		//all ids in the snapshots were handed out before this
+		cube.counties = StringDictionary.COUNTIES.size();
+		cube.names = StringDictionary.NAMES.size();
+		int countySlots = cube.counties + 1;
+		cube.yearCounty = new long[(cube.years + 1) * countySlots * GENDERS];
+		cube.nameYear = new int[cube.names * (cube.years + 1) * GENDERS];
+		AtomicIntegerArray nameCounty = new AtomicIntegerArray(cube.names * countySlots * GENDERS);
+
+		//one task per year; the year slots of the first two arrays belong to that task alone
+		IntStream.range(0, cube.years).parallel().forEach(y -> {
+			for (Name name : cube.snapshots[y]) {
+				int count = name.getCount();
+				int county = name.getCountyId();
+				int gender = name.getGenderId();
+				cube.yearCounty[((y + 1) * countySlots + county) * GENDERS + gender] += count;
+				cube.nameYear[(name.getNameId() * (cube.years + 1) + y + 1) * GENDERS + gender] += count;
+				nameCounty.addAndGet((name.getNameId() * countySlots + county) * GENDERS + gender, count);
+			}
+		});
+
+		//sums over all counties and genders, and prefix sums over the years
+		for (int y = 1; y <= cube.years; y++) {
+			for (int c = 0; c < cube.counties; c++) {
+				int cell = (y * countySlots + c) * GENDERS;
+				cube.yearCounty[cell + 2] = cube.yearCounty[cell] + cube.yearCounty[cell + 1];
+				for (int g = 0; g < GENDERS; g++) {
+					cube.yearCounty[(y * countySlots + cube.counties) * GENDERS + g] += cube.yearCounty[cell + g];
+				}
+			}
+			for (int i = y * countySlots * GENDERS; i < (y + 1) * countySlots * GENDERS; i++) {
+				cube.yearCounty[i] += cube.yearCounty[i - countySlots * GENDERS];
+			}
+		}
+		cube.nameCounty = new int[nameCounty.length()];
+		IntStream.range(0, cube.names).parallel().forEach(n -> {
+			int base = n * (cube.years + 1) * GENDERS;
+			for (int y = 1; y <= cube.years; y++) {
+				int cell = base + y * GENDERS;
+				cube.nameYear[cell + 2] = cube.nameYear[cell] + cube.nameYear[cell + 1];
+				for (int g = 0; g < GENDERS; g++) {
+					cube.nameYear[cell + g] += cube.nameYear[cell - GENDERS + g];
+				}
+			}
+			for (int c = 0; c < cube.counties; c++) {
+				int cell = (n * countySlots + c) * GENDERS;
+				int f = nameCounty.get(cell);
+				int m = nameCounty.get(cell + 1);
+				cube.nameCounty[cell] = f;
+				cube.nameCounty[cell + 1] = m;
+				cube.nameCounty[cell + 2] = f + m;
+				int all = (n * countySlots + cube.counties) * GENDERS;
+				cube.nameCounty[all] += f;
+				cube.nameCounty[all + 1] += m;
+				cube.nameCounty[all + 2] += f + m;
+			}
+		});
+		return cube;
+	}
+
+	/**
+	 * get the first year of the cube
+	 * @return the smallest year of the data it was built from
+	 */
+	public int getFirstYear() {
+		return firstYear;
+	}
+
+	/**
+	 * get the last year of the cube
+	 * @return the largest year of the data it was built from
+	 */
+	public int getLastYear() {
+		return firstYear + years - 1;
+	}
+
+	/**
+	 * get the number of babies with the given name, county and gender in a range
+	 * of years
+	 * @param name a String of name, or null for all names
+	 * @param county the name of the county (ALL for the whole state)
+	 * @param gender f or m, or ALL for both
+	 * @param firstYear the first year of the range
+	 * @param lastYear the last year of the range
+	 * @return the sum of the counts, 0 for a name, county or gender that does not occur
+	 */
+	public long sum(String name, String county, String gender, int firstYear, int lastYear) {
+		int nameId = name == null ? ANY : StringDictionary.NAMES.lookup(name);
+		int countyId = county.equalsIgnoreCase("ALL") ? ANY : StringDictionary.COUNTIES.lookup(county);
+		int genderId = gender.equalsIgnoreCase("ALL") ? ANY : Name.genderId(gender);
+		if ((name != null && nameId < 0) || (countyId < 0 && !county.equalsIgnoreCase("ALL"))
+				|| (genderId < 0 && !gender.equalsIgnoreCase("ALL"))) {
+			return 0;
+		}
+		return sum(nameId, countyId, genderId, firstYear, lastYear);
+	}
+
+	/**
+	 * get the number of babies with the given ids in a range of years
+	 * @param nameId the id of the name, or ANY
+	 * @param countyId the id of the county, or ANY
+	 * @param genderId 0 for female, 1 for male, or ANY
+	 * @param firstYear the first year of the range
+	 * @param lastYear the last year of the range
+	 * @return the sum of the counts
+	 */
+	long sum(int nameId, int countyId, int genderId, int firstYear, int lastYear) {
+		int from = Math.max(firstYear, this.firstYear) - this.firstYear;
+		int to = Math.min(lastYear, getLastYear()) - this.firstYear + 1;
+		if (from >= to || nameId >= names || countyId >= counties) {
+			return 0;
+		}
+		int county = countyId == ANY ? counties : countyId;
+		int gender = genderId == ANY ? GENDERS - 1 : genderId;
+		if (nameId == ANY) {
+			return yearCounty[(to * (counties + 1) + county) * GENDERS + gender]
+					- yearCounty[(from * (counties + 1) + county) * GENDERS + gender];
+		}
+		if (countyId == ANY) {
+			int base = nameId * (years + 1) * GENDERS + gender;
+			return nameYear[base + to * GENDERS] - nameYear[base + from * GENDERS];
+		}
+		if (from == 0 && to == years) {
+			return nameCounty[(nameId * (counties + 1) + county) * GENDERS + gender];
+		}
+		//a name in one county over part of the years is summed from the years
+		long sum = 0;
+		for (int y = from; y < to; y++) {
+			if (genderId == ANY) {
+				sum += snapshots[y].getCountByNameCounty(nameId, countyId);
+			}
+			else {
+				Name stored = snapshots[y].get(new Name(nameId, countyId, genderId, 0));
+				sum += stored == null ? 0 : stored.getCount();
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Groups the babies with the given name, county and gender in a range of
+	 * years by one dimension and sums every group. A dimension that is grouped
+	 * by ignores its own filter.
+	 * @param by the dimension to group by
+	 * @param name a String of name, or null for all names
+	 * @param county the name of the county (ALL for the whole state)
+	 * @param gender f or m, or ALL for both
+	 * @param firstYear the first year of the range
+	 * @param lastYear the last year of the range
+	 * @return the sum of every group, keyed by year, county, gender or name; all
+	 * years of the range and both genders are listed, counties and names only if
+	 * their sum is not 0
+	 */
+	public Map<String, Long> groupBy(Dimension by, String name, String county, String gender, int firstYear, int lastYear) {
+		int nameId = name == null || by == Dimension.NAME ? ANY : StringDictionary.NAMES.lookup(name);
+		int countyId = county.equalsIgnoreCase("ALL") || by == Dimension.COUNTY ? ANY : StringDictionary.COUNTIES.lookup(county);
+		int genderId = gender.equalsIgnoreCase("ALL") || by == Dimension.GENDER ? ANY : Name.genderId(gender);
+		boolean none = (name != null && by != Dimension.NAME && nameId < 0)
+				|| (countyId < 0 && !county.equalsIgnoreCase("ALL") && by != Dimension.COUNTY)
+				|| (genderId < 0 && !gender.equalsIgnoreCase("ALL") && by != Dimension.GENDER);
+		LinkedHashMap<String, Long> groups = new LinkedHashMap<String, Long>();
+		switch (by) {
+		case YEAR:
+			for (int y = firstYear; y <= lastYear; y++) {
+				groups.put(String.valueOf(y), none ? 0 : sum(nameId, countyId, genderId, y, y));
+			}
+			break;
+		case GENDER:
+			groups.put("F", none ? 0 : sum(nameId, countyId, 0, firstYear, lastYear));
+			groups.put("M", none ? 0 : sum(nameId, countyId, 1, firstYear, lastYear));
+			break;
+		case COUNTY:
+			for (int c = 0; c < counties && !none; c++) {
+				long s = sum(nameId, c, genderId, firstYear, lastYear);
+				if (s != 0) {
+					groups.put(StringDictionary.COUNTIES.get(c), s);
+				}
+			}
+			break;
+		case NAME:
+			for (int n = 0; n < names && !none; n++) {
+				long s = sum(n, countyId, genderId, firstYear, lastYear);
+				if (s != 0) {
+					groups.put(StringDictionary.NAMES.get(n), s);
+				}
+			}
+			break;
+		}
+		return groups;
+	}
+
+	/**
+	 * get the groups with the largest sums, for example the counties where a name
+	 * is most common
+	 * @param groups the groups returned by groupBy
+	 * @param k the number of groups to return
+	 * @return at most k groups in descending order of their sums
+	 */
+	public static Map<String, Long> top(Map<String, Long> groups, int k) {
+		LinkedHashMap<String, Long> top = new LinkedHashMap<String, Long>();
+		groups.entrySet().stream()
+				.sorted((a, b) -> Long.compare(b.getValue(), a.getValue()))
+				.limit(k)
+				.forEach(e -> top.put(e.getKey(), e.getValue()));
+		return top;
+	}
+
+	/**
+	 * get the memory used by the arrays of the cube
+	 * @return the size of the arrays in bytes
+	 */
+	public long getBytes() {
+		return 8L * yearCounty.length + 4L * nameYear.length + 4L * nameCounty.length;
+	}
+}
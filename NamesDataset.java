@@ -0,0 +1,204 @@
+package project5;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * This class holds the names of all years read from a file of baby names: one
+ * YearNames tree for every year from 1900 to 2018, the range of years that
+ * occurred in the file, and a NameSeries index of the counts of every name over
+ * all years.
+ *
+ * @author Zhenghan Zhang
+ */
+public class NamesDataset implements NamesQueries {
+	public static final int FIRST_YEAR = 1900;
+	public static final int LAST_YEAR = 2018;
+	
+	//one tree per year, indexed by year - FIRST_YEAR
+	private ArrayList<YearNames> years;
+	//counts of every name over all years
+	private NameSeries series;
+	//trigrams and phonetic codes of the distinct names
+	private NameSearchIndex search;
+	//smallest and largest year found in the file; min is greater than max when no row was read
+	private volatile int minYear;
+	private volatile int maxYear;
+	//last row read from the file and the index of its year
+	Name lastName;
+	int lastYear;
+	//file the names were read from, and the offset just past the last row read
+	File file;
+	long offset;
+	
+	//largest range of the file mapped at once by refresh
+	private static final long MAX_MAP = Integer.MAX_VALUE;
+	
+	/**
+	 * Creates a dataset from the trees of all years.
+	 * @param years one tree per year from FIRST_YEAR to LAST_YEAR
+	 * @param minYear smallest year found in the file
+	 * @param maxYear largest year found in the file
+	 */
+	public NamesDataset(ArrayList<YearNames> years, int minYear, int maxYear) {
+		this.years = years;
+		this.minYear = minYear;
+		this.maxYear = maxYear;
+		this.series = new NameSeries();
+		for (YearNames year : years) {
+			series.load(year);
+		}
+		addListener(series);
+		this.search = new NameSearchIndex(StringDictionary.NAMES);
+	}
+	
+	/**
+	 * Registers a listener with the trees of all years, so that it is told about
+	 * every later change of the dataset, including the rows added by refresh.
+	 * @param listener the listener
+	 */
+	public void addListener(YearNames.Listener listener) {
+		for (YearNames year : years) {
+			year.addListener(listener);
+		}
+	}
+	
+	/**
+	 * get the trees of all years
+	 * @return a list with one tree per year, indexed by year - FIRST_YEAR
+	 */
+	public ArrayList<YearNames> getYears() {
+		return years;
+	}
+	
+	/**
+	 * get the tree of one year
+	 * @param year the year, between FIRST_YEAR and LAST_YEAR
+	 * @return the names of that year
+	 * @throws IndexOutOfBoundsException if the year is out of range
+	 */
+	public YearNames getYear(int year) {
+		return years.get(year - FIRST_YEAR);
+	}
+	
+	@Override
+	public YearQueries getYearQueries(int year) {
+		return getYear(year);
+	}
+	
+	@Override
+	public double[] getFractions(String name, String county, int firstYear, int lastYear) {
+		return series.getFractions(name, county, firstYear, lastYear);
+	}
+	
+	/**
+	 * Reads the rows that were appended to the file since it was read (or last
+	 * refreshed) and adds them to the trees of their years with YearNames.add,
+	 * which keeps the totals and all indexes up to date. Only complete lines are
+	 * read; a last line without line separator is left for the next refresh.
+	 * Lines that are not valid rows are skipped, and rows of names that are
+	 * already in their year are ignored, as when the file is read.
+	 * @return the number of names that were added
+	 * @throws IOException if the file cannot be read or is shorter than before
+	 * @throws IllegalStateException if the dataset was not read from a file
+	 */
+	public synchronized int refresh() throws IOException {
+		if (file == null) {
+			throw new IllegalStateException("The dataset was not read from a file");
+		}
+		long start = System.nanoTime();
+		ParallelLoader.Rows rows = new ParallelLoader.Rows();
+		long position = offset;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < offset) {
+				throw new IOException("The file " + file + " is shorter than when it was read");
+			}
+			while (position < size) {
+				MappedCSVReader reader = MappedCSVReader.map(channel, position, Math.min(size, position + MAX_MAP));
+				int consumed = 0;
+				while (reader.nextRow() && reader.rowTerminated()) {
+					rows.add(reader);
+					consumed = reader.rowEnd();
+				}
+				if (consumed == 0) {
+					break;
+				}
+				position += consumed;
+			}
+		}
+		//the rows of every year are added in file order
+		int added = 0;
+		for (int i = 0; i < rows.byYear.size(); i++) {
+			ArrayList<Name> names = rows.byYear.get(i);
+			if (names == null) {
+				continue;
+			}
+			YearNames year = years.get(i);
+			for (Name name : names) {
+				if (year.add(name)) {
+					added++;
+				}
+			}
+		}
+		if (rows.minYear <= rows.maxYear) {
+			minYear = Math.min(minYear, rows.minYear);
+			maxYear = Math.max(maxYear, rows.maxYear);
+		}
+		offset = position;
+		search.update();
+		Metrics.rows(rows.read, rows.rejected, System.nanoTime() - start);
+		return added;
+	}
+	
+	/**
+	 * get the offset in the file just past the last row that was read
+	 * @return the number of bytes of the file that were read
+	 */
+	public long getOffset() {
+		return offset;
+	}
+	
+	/**
+	 * Writes the names of all years to a binary snapshot file, which
+	 * NamesSnapshot.open reads back without parsing the csv file again.
+	 * @param file the snapshot file; it is replaced if it exists
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(File file) throws IOException {
+		NamesSnapshot.save(this, file);
+	}
+	
+	/**
+	 * get the index of the counts of every name over all years; it follows all
+	 * changes of the trees of this dataset
+	 * @return the index
+	 */
+	public NameSeries getSeries() {
+		return series;
+	}
+	
+	@Override
+	public NameSearchIndex getSearchIndex() {
+		return search;
+	}
+	
+	/**
+	 * get the smallest year found in the file
+	 * @return the smallest year; greater than getMaxYear() if no row was read
+	 */
+	public int getMinYear() {
+		return minYear;
+	}
+	
+	/**
+	 * get the largest year found in the file
+	 * @return the largest year
+	 */
+	public int getMaxYear() {
+		return maxYear;
+	}
+}
@@ -0,0 +1,50 @@
+package project5;
+
+/**
+ * The queries that can be answered about the names of all years. They are
+ * implemented by the NamesDataset read from a csv file and by the NamesSnapshot
+ * opened from a binary file. Names and counties are matched ignoring case; the
+ * county ALL stands for the whole state.
+ *
+ * @author Zhenghan Zhang
+ */
+public interface NamesQueries {
+	
+	/**
+	 * get the smallest year of the data
+	 * @return the smallest year; greater than getMaxYear() if there are no names
+	 */
+	int getMinYear();
+	
+	/**
+	 * get the largest year of the data
+	 * @return the largest year
+	 */
+	int getMaxYear();
+	
+	/**
+	 * get the queries about one year
+	 * @param year the year, between NamesDataset.FIRST_YEAR and NamesDataset.LAST_YEAR
+	 * @return the names of that year
+	 * @throws IndexOutOfBoundsException if the year is out of range
+	 */
+	YearQueries getYearQueries(int year);
+	
+	/**
+	 * get the fractions of the babies of a name in a county for a range of years,
+	 * with the same values as YearQueries.getFractionByNameCounty
+	 * @param name a String of name
+	 * @param county the name of the county (ALL for the whole state)
+	 * @param firstYear the first year of the range
+	 * @param lastYear the last year of the range
+	 * @return the fraction of every year of the range, or null if the name has no
+	 * babies in that county in any year of the range
+	 */
+	double[] getFractions(String name, String county, int firstYear, int lastYear);
+	
+	/**
+	 * get the index for finding names that are similar to a name or contain a text
+	 * @return the index of the distinct names of the data
+	 */
+	NameSearchIndex getSearchIndex();
+}
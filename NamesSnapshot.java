@@ -0,0 +1,339 @@
+package project5;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class stores the names of all years in a binary file and opens such a
+ * file again without parsing it: the file is memory mapped and every year is a
+ * FrozenYearNames whose columns are views of the mapped bytes, so queries run
+ * directly on the file and opening it only reads the dictionaries.
+ *
+ * The file starts with a header (magic number, format version, range of years),
+ * followed by the strings of the name and county dictionaries in id order and
+ * by the columns of every year, each aligned to 8 bytes. All numbers are big endian.
+ * A file holds at most 2GB.
+ *
+ * @author Zhenghan Zhang
+ */
+public class NamesSnapshot implements NamesQueries {
+	//"NYSN"
+	private static final int MAGIC = 0x4E59534E;
+	private static final int VERSION = 2;
+	//largest file that can be mapped as one buffer
+	private static final long MAX_SIZE = Integer.MAX_VALUE;
+	
+	//one frozen year per year from FIRST_YEAR to LAST_YEAR
+	private FrozenYearNames[] years;
+	private int minYear;
+	private int maxYear;
+	//trigrams and phonetic codes of the names of the dictionary
+	private NameSearchIndex search;
+	
+	private NamesSnapshot(FrozenYearNames[] years, int minYear, int maxYear) {
+		this.years = years;
+		this.minYear = minYear;
+		this.maxYear = maxYear;
+		this.search = new NameSearchIndex(StringDictionary.NAMES);
+	}
+	
+	/**
+	 * Writes the names of all years of a dataset to a snapshot file. The file is
+	 * written under a temporary name first and then renamed, so a reader never
+	 * sees a partial file.
+	 * @param dataset the names of all years
+	 * @param file the snapshot file to write; it is replaced if it exists
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void save(NamesDataset dataset, File file) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		//DataOutputStream.size() stops at Integer.MAX_VALUE, so the bytes are counted in a long
+		try (ByteCounter counter = new ByteCounter(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+				DataOutputStream out = new DataOutputStream(counter)) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(dataset.getMinYear());
+			out.writeInt(dataset.getMaxYear());
+			out.writeInt(dataset.getYears().size());
+			//take the size first, the dictionaries may grow while they are written
+			writeDictionary(out, StringDictionary.NAMES, StringDictionary.NAMES.size());
+			writeDictionary(out, StringDictionary.COUNTIES, StringDictionary.COUNTIES.size());
+			for (YearNames year : dataset.getYears()) {
+				writeYear(out, counter, year.freeze());
+				if (counter.count > MAX_SIZE) {
+					throw new IOException("The snapshot is larger than 2GB");
+				}
+			}
+		}
+		catch (IOException ex) {
+			temp.delete();
+			throw ex;
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+	
+	private static void writeDictionary(DataOutputStream out, StringDictionary dictionary, int size) throws IOException {
+		out.writeInt(size);
+		for (int i = 0; i < size; i++) {
+			byte[] bytes = dictionary.get(i).getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+	
+	private static void writeYear(DataOutputStream out, ByteCounter counter, FrozenYearNames year) throws IOException {
+		int n = year.size();
+		out.writeInt(year.getYear());
+		out.writeInt(n);
+		out.writeInt(year.nameIds.limit());
+		out.writeInt(year.countyTotals.limit());
+		align(out, counter);
+		for (int i = 0; i <= n; i++) {
+			out.writeLong(year.prefix.get(i));
+		}
+		writeInts(out, year.names);
+		writeInts(out, year.counts);
+		writeInts(out, year.nameIds);
+		writeInts(out, year.nameStart);
+		writeInts(out, year.nameEnd);
+		writeInts(out, year.countyTotals);
+		for (int i = 0; i < n; i++) {
+			out.writeShort(year.counties.get(i));
+		}
+		for (int i = 0; i < n; i++) {
+			out.writeByte(year.genders.get(i));
+		}
+		align(out, counter);
+	}
+	
+	private static void writeInts(DataOutputStream out, IntBuffer values) throws IOException {
+		for (int i = 0; i < values.limit(); i++) {
+			out.writeInt(values.get(i));
+		}
+	}
+	
+	private static void align(DataOutputStream out, ByteCounter counter) throws IOException {
+		while (counter.count % 8 != 0) {
+			out.writeByte(0);
+		}
+	}
+	
+	/*
+	 * Counts the bytes written through it.
+	 */
+	private static class ByteCounter extends FilterOutputStream {
+		long count;
+		
+		ByteCounter(OutputStream out) {
+			super(out);
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+	
+	/**
+	 * Tells whether a file starts like a snapshot file.
+	 * @param file the file
+	 * @return true if the file starts with the magic number of snapshots
+	 */
+	public static boolean isSnapshot(File file) {
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			return in.readInt() == MAGIC;
+		}
+		catch (IOException ex) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Opens a snapshot file. The strings of the file are added to the shared
+	 * dictionaries, which must be empty or hold the same strings with the same
+	 * ids as when the file was written, for example because the file was opened before.
+	 * @param file the snapshot file
+	 * @return the names of all years, read from the mapped file
+	 * @throws IOException if the file cannot be read, is not a valid snapshot, or
+	 * does not match the dictionaries
+	 */
+	public static NamesSnapshot open(File file) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("The snapshot " + file + " is larger than 2GB");
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		try {
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException(file + " is not a snapshot file");
+			}
+			int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported snapshot version " + version);
+			}
+			int minYear = buffer.getInt();
+			int maxYear = buffer.getInt();
+			int count = buffer.getInt();
+			if (count != NamesDataset.LAST_YEAR - NamesDataset.FIRST_YEAR + 1) {
+				throw new IOException("The snapshot holds " + count + " years instead of "
+						+ (NamesDataset.LAST_YEAR - NamesDataset.FIRST_YEAR + 1));
+			}
+			readDictionary(buffer, StringDictionary.NAMES);
+			readDictionary(buffer, StringDictionary.COUNTIES);
+			FrozenYearNames[] years = new FrozenYearNames[count];
+			for (int i = 0; i < count; i++) {
+				years[i] = readYear(buffer);
+			}
+			return new NamesSnapshot(years, minYear, maxYear);
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex) {
+			throw new IOException("The snapshot " + file + " is corrupt", ex);
+		}
+	}
+	
+	/*
+	 * Reads the strings of a dictionary and checks that they get the ids they
+	 * had when the file was written.
+	 */
+	private static void readDictionary(ByteBuffer buffer, StringDictionary dictionary) throws IOException {
+		int size = buffer.getInt();
+		String[] values = new String[size];
+		for (int i = 0; i < size; i++) {
+			byte[] bytes = new byte[buffer.getInt()];
+			buffer.get(bytes);
+			values[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		//check the ids handed out already before adding anything
+		int known = Math.min(size, dictionary.size());
+		for (int i = 0; i < known; i++) {
+			if (!dictionary.key(i).equals(StringDictionary.fold(values[i]))) {
+				throw new IOException("The snapshot does not match the strings already in use");
+			}
+		}
+		for (int i = known; i < size; i++) {
+			if (dictionary.id(values[i]) != i) {
+				throw new IOException("The snapshot does not match the strings already in use");
+			}
+		}
+	}
+	
+	private static FrozenYearNames readYear(ByteBuffer buffer) {
+		int year = buffer.getInt();
+		int n = buffer.getInt();
+		int ids = buffer.getInt();
+		int counties = buffer.getInt();
+		if (n < 0 || ids < 0 || counties < 0) {
+			throw new IllegalArgumentException("Negative length");
+		}
+		align(buffer);
+		//same order as writeYear
+		ByteBuffer prefix = section(buffer, 8L * (n + 1));
+		ByteBuffer names = section(buffer, 4L * n);
+		ByteBuffer counts = section(buffer, 4L * n);
+		ByteBuffer nameIds = section(buffer, 4L * ids);
+		ByteBuffer nameStart = section(buffer, 4L * ids);
+		ByteBuffer nameEnd = section(buffer, 4L * ids);
+		ByteBuffer countyTotals = section(buffer, 4L * counties);
+		ByteBuffer countyIds = section(buffer, 2L * n);
+		ByteBuffer genders = section(buffer, n);
+		align(buffer);
+		return new FrozenYearNames(year, names.asIntBuffer(), countyIds.asShortBuffer(), genders, counts.asIntBuffer(),
+				prefix.asLongBuffer(), countyTotals.asIntBuffer(), nameIds.asIntBuffer(), nameStart.asIntBuffer(),
+				nameEnd.asIntBuffer());
+	}
+	
+	/*
+	 * Returns a view of the next length bytes of the buffer and skips them.
+	 */
+	private static ByteBuffer section(ByteBuffer buffer, long length) {
+		if (length > buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		ByteBuffer section = buffer.slice(buffer.position(), (int) length);
+		buffer.position(buffer.position() + (int) length);
+		return section;
+	}
+	
+	private static void align(ByteBuffer buffer) {
+		buffer.position((buffer.position() + 7) & ~7);
+	}
+	
+	@Override
+	public int getMinYear() {
+		return minYear;
+	}
+	
+	@Override
+	public int getMaxYear() {
+		return maxYear;
+	}
+	
+	@Override
+	public NameSearchIndex getSearchIndex() {
+		return search;
+	}
+	
+	@Override
+	public YearQueries getYearQueries(int year) {
+		return getYear(year);
+	}
+	
+	/**
+	 * get the frozen names of one year
+	 * @param year the year, between FIRST_YEAR and LAST_YEAR
+	 * @return the names of that year
+	 * @throws IndexOutOfBoundsException if the year is out of range
+	 */
+	public FrozenYearNames getYear(int year) {
+		int index = year - NamesDataset.FIRST_YEAR;
+		if (index < 0 || index >= years.length) {
+			throw new IndexOutOfBoundsException("Invalid year " + year);
+		}
+		return years[index];
+	}
+	
+	@Override
+	public double[] getFractions(String name, String county, int firstYear, int lastYear) {
+		boolean all = county.equalsIgnoreCase("ALL");
+		int nameId = StringDictionary.NAMES.lookup(name);
+		int countyId = all ? -1 : StringDictionary.COUNTIES.lookup(county);
+		if (firstYear > lastYear) {
+			return null;
+		}
+		double[] fractions = new double[lastYear - firstYear + 1];
+		boolean found = false;
+		for (int y = firstYear; y <= lastYear; y++) {
+			FrozenYearNames year = getYear(y);
+			int m = all ? year.getCountByName(nameId) : year.getCountByNameCounty(nameId, countyId);
+			int i = all ? year.getTotalCount() : year.getCountyTotal(countyId);
+			fractions[y - firstYear] = FrozenYearNames.fraction(m, i);
+			found |= m != 0;
+		}
+		return found ? fractions : null;
+	}
+}
@@ -0,0 +1,86 @@
+package project5;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A StampedLock that runs readers optimistically: a reader first runs without
+ * taking the lock and its result is kept if no writer held the lock in the
+ * meantime. Otherwise, or if the reader failed on data that was changing under
+ * it, it is run again while holding the read lock. Readers that succeed
+ * optimistically never write to shared memory, so they do not slow each other down.
+ *
+ * Readers must only read, must not call other methods that take the same lock
+ * (the lock is not reentrant), and must end even when they see a structure
+ * that is being changed.
+ *
+ * @author Zhenghan Zhang
+ */
+public class OptimisticLock extends StampedLock {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Runs a reader optimistically, and under the read lock if that fails.
+	 * @param reader the code that reads the guarded data
+	 * @return the result of the reader
+	 */
+	public <R> R read(Supplier<R> reader) {
+		long stamp = tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				R result = reader.get();
+				if (validate(stamp)) {
+					return result;
+				}
+			}
+			catch (RuntimeException | StackOverflowError ex) {
+				//the reader saw a change in progress; run it again under the lock
+			}
+		}
+		return readLocked(reader);
+	}
+
+	/**
+	 * Runs a reader of an int optimistically, and under the read lock if that fails.
+	 * @param reader the code that reads the guarded data
+	 * @return the result of the reader
+	 */
+	public int readInt(IntSupplier reader) {
+		long stamp = tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				int result = reader.getAsInt();
+				if (validate(stamp)) {
+					return result;
+				}
+			}
+			catch (RuntimeException | StackOverflowError ex) {
+				//the reader saw a change in progress; run it again under the lock
+			}
+		}
+		long locked = readLock();
+		try {
+			return reader.getAsInt();
+		}
+		finally {
+			unlockRead(locked);
+		}
+	}
+
+	/**
+	 * Runs a reader while holding the read lock. This is meant for readers that
+	 * cannot safely see data in the middle of a change.
+	 * @param reader the code that reads the guarded data
+	 * @return the result of the reader
+	 */
+	public <R> R readLocked(Supplier<R> reader) {
+		long stamp = readLock();
+		try {
+			return reader.get();
+		}
+		finally {
+			unlockRead(stamp);
+		}
+	}
+}
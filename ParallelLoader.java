@@ -0,0 +1,255 @@
+package project5;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * This class reads a csv file of baby names on a ForkJoinPool. The file is cut
+ * into byte ranges that end at line boundaries and every range is memory mapped
+ * and parsed by its own task. The rows are then routed by year, and the tree of every year is
+ * sorted and bulk loaded by a single task, so no tree is shared between threads.
+ * The result is the same as reading the file line by line and adding every row
+ * in order.
+ *
+ * @author Zhenghan Zhang
+ */
+public class ParallelLoader {
+	//ranges are not made smaller than this, so small files are read by one task
+	private static final long MIN_CHUNK = 1 << 16;
+	//ranges are not made larger than this, so a range fits in a byte array
+	private static final long MAX_CHUNK = 1 << 26;
+	
+	private ForkJoinPool pool;
+	
+	/**
+	 * Creates a loader that runs on the common ForkJoinPool.
+	 */
+	public ParallelLoader() {
+		this(ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Creates a loader that runs on the given pool.
+	 * @param pool the pool that parses the file and builds the trees
+	 */
+	public ParallelLoader(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+	
+	/**
+	 * Reads all rows of the file into a new dataset. Lines that are not valid rows
+	 * are skipped. A last line without line separator is read as well, as when
+	 * the file is read line by line; only NamesDataset.refresh leaves such a line
+	 * for later.
+	 * @param file the csv file of names
+	 * @return the names of all years
+	 * @throws IOException if the file cannot be read
+	 */
+	public NamesDataset load(File file) throws IOException {
+		long began = System.nanoTime();
+		ArrayList<ForkJoinTask<Rows>> parsers = new ArrayList<ForkJoinTask<Rows>>();
+		long size;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			FileChannel channel = raf.getChannel();
+			long[] bounds = split(channel);
+			size = bounds[bounds.length - 1];
+			for (int i = 0; i + 1 < bounds.length; i++) {
+				long start = bounds[i];
+				long end = bounds[i + 1];
+				parsers.add(pool.submit(() -> parse(channel, start, end)));
+			}
+			for (ForkJoinTask<Rows> parser : parsers) {
+				parser.join();
+			}
+		}
+		
+		//combine the ranges in file order
+		int minYear = Integer.MAX_VALUE;
+		int maxYear = NamesDataset.FIRST_YEAR;
+		Name lastName = null;
+		int lastYear = 0;
+		for (ForkJoinTask<Rows> parser : parsers) {
+			Rows rows = parser.join();
+			minYear = Math.min(minYear, rows.minYear);
+			maxYear = Math.max(maxYear, rows.maxYear);
+			if (rows.lastName != null) {
+				lastName = rows.lastName;
+				lastYear = rows.lastYear;
+			}
+		}
+		
+		//build every year from its rows on its own task
+		ArrayList<YearNames> years = new ArrayList<YearNames>();
+		ArrayList<ForkJoinTask<?>> builders = new ArrayList<ForkJoinTask<?>>();
+		for (int i = 0; i <= NamesDataset.LAST_YEAR - NamesDataset.FIRST_YEAR; i++) {
+			YearNames year = new YearNames(NamesDataset.FIRST_YEAR + i);
+			years.add(year);
+			int index = i;
+			builders.add(pool.submit(() -> build(year, index, parsers)));
+		}
+		for (ForkJoinTask<?> builder : builders) {
+			builder.join();
+		}
+		
+		if (Metrics.ENABLED) {
+			Rows total = new Rows();
+			for (ForkJoinTask<Rows> parser : parsers) {
+				total.count(parser.join());
+			}
+			Metrics.rows(total.read, total.rejected, System.nanoTime() - began);
+		}
+		
+		NamesDataset dataset = new NamesDataset(years, minYear, maxYear);
+		dataset.lastName = lastName;
+		dataset.lastYear = lastYear;
+		dataset.file = file;
+		dataset.offset = size;
+		return dataset;
+	}
+	
+	/**
+	 * Cuts the file into ranges that start at the beginning of a line.
+	 * @param channel the file
+	 * @return offsets of the range boundaries, starting with 0 and ending with the file size
+	 * @throws IOException if the file cannot be read
+	 */
+	private long[] split(FileChannel channel) throws IOException {
+		long size = channel.size();
+		int parallelism = pool.getParallelism();
+		long chunks = Math.max(parallelism * 4L, (size + MAX_CHUNK - 1) / MAX_CHUNK);
+		chunks = Math.max(1, Math.min(chunks, size / MIN_CHUNK));
+		ArrayList<Long> bounds = new ArrayList<Long>();
+		bounds.add(0L);
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		for (long i = 1; i < chunks; i++) {
+			long pos = Math.max(size * i / chunks, bounds.get(bounds.size() - 1));
+			pos = nextLine(channel, pos, buffer);
+			if (pos > bounds.get(bounds.size() - 1) && pos < size) {
+				bounds.add(pos);
+			}
+		}
+		bounds.add(size);
+		long[] result = new long[bounds.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = bounds.get(i);
+		}
+		return result;
+	}
+	
+	/**
+	 * Finds the start of the line that follows the given position.
+	 * @return offset just past the next '\n', or the file size if there is none
+	 */
+	private static long nextLine(FileChannel channel, long pos, ByteBuffer buffer) throws IOException {
+		while (true) {
+			buffer.clear();
+			int n = channel.read(buffer, pos);
+			if (n <= 0) {
+				return channel.size();
+			}
+			for (int i = 0; i < n; i++) {
+				if (buffer.get(i) == '\n') {
+					return pos + i + 1;
+				}
+			}
+			pos += n;
+		}
+	}
+	
+	/**
+	 * Parses the rows in one range of the file, reading the mapped bytes
+	 * directly. Only the last range can end with a row without line separator.
+	 */
+	private static Rows parse(FileChannel channel, long start, long end) throws IOException {
+		MappedCSVReader reader = MappedCSVReader.map(channel, start, end);
+		Rows rows = new Rows();
+		while (reader.nextRow()) {
+			rows.add(reader);
+		}
+		return rows;
+	}
+	
+	/**
+	 * Collects the rows of one year from all ranges in file order, sorts them and
+	 * bulk loads them into the tree of that year.
+	 */
+	private static void build(YearNames year, int index, ArrayList<ForkJoinTask<Rows>> parsers) {
+		ArrayList<Name> names = new ArrayList<Name>();
+		for (ForkJoinTask<Rows> parser : parsers) {
+			ArrayList<Name> part = parser.join().byYear.get(index);
+			if (part != null) {
+				names.addAll(part);
+			}
+		}
+		//sorting is stable, so the first of several equal rows is kept as with add
+		Collections.sort(names);
+		year.bulkLoad(names);
+	}
+	
+	/**
+	 * Rows parsed from one range of the file, grouped by year.
+	 */
+	static class Rows {
+		ArrayList<ArrayList<Name>> byYear = new ArrayList<ArrayList<Name>>(
+				Collections.nCopies(NamesDataset.LAST_YEAR - NamesDataset.FIRST_YEAR + 1, (ArrayList<Name>) null));
+		int minYear = Integer.MAX_VALUE;
+		int maxYear = NamesDataset.FIRST_YEAR;
+		Name lastName;
+		int lastYear;
+		//rows seen, and rows skipped by Metrics.Reject reason
+		int read;
+		int[] rejected = new int[Metrics.Reject.values().length];
+		
+		/**
+		 * Keeps the name of the current row of the reader under its year. Rows that
+		 * are not valid are skipped.
+		 */
+		void add(MappedCSVReader row) {
+			read++;
+			try {
+				//the name is made last, so the strings of a rejected row are not added to the dictionaries
+				int year = row.intField(0);
+				int count = row.intField(4);
+				int index = year - NamesDataset.FIRST_YEAR;
+				if (index < 0 || index >= byYear.size()) {
+					throw new IndexOutOfBoundsException("Invalid year " + year);
+				}
+				lastName = new Name(row.stringField(1), row.stringField(3), count, row.stringField(2));
+				lastYear = index;
+				minYear = Math.min(minYear, year);
+				maxYear = Math.max(maxYear, year);
+				ArrayList<Name> names = byYear.get(lastYear);
+				if (names == null) {
+					names = new ArrayList<Name>();
+					byYear.set(lastYear, names);
+				}
+				names.add(lastName);
+			}
+			catch (IllegalArgumentException ex) {
+				//ignore this exception and skip to the next line
+				rejected[Metrics.Reject.of(ex).ordinal()]++;
+			}
+			catch (IndexOutOfBoundsException ex) {
+				//ignore
+				rejected[(row.fieldCount() < 5 ? Metrics.Reject.FIELDS : Metrics.Reject.YEAR).ordinal()]++;
+			}
+		}
+		
+		/**
+		 * Adds the numbers of rows seen and skipped by other rows to these.
+		 */
+		void count(Rows other) {
+			read += other.read;
+			for (int i = 0; i < rejected.length; i++) {
+				rejected[i] += other.rejected[i];
+			}
+		}
+	}
+}
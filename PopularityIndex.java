@@ -0,0 +1,266 @@
+package project5;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class keeps the names of one year ordered by popularity. There is one
+ * ranking for every county and gender, and one ranking per gender for all
+ * counties together. Each ranking is an AVLTree ordered by decreasing count,
+ * so the top k names and the rank of a count can be found in O(k + log n).
+ *
+ * @author Zhenghan Zhang
+ */
+public class PopularityIndex {
+	//county id used for the rankings of all counties
+	private static final int ALL = -1;
+	
+	//rankings per county and gender, keyed by key(countyId, genderId)
+	private HashMap<Integer, AVLTree<Entry>> rankings = new HashMap<Integer, AVLTree<Entry>>();
+	//total count and number of counties of every name and gender, keyed by key(nameId, genderId)
+	private HashMap<Integer, int[]> stateTotals = new HashMap<Integer, int[]>();
+	
+	/**
+	 * Adds the name to the ranking of its county and updates its statewide total.
+	 * @param name the name that was added to the year
+	 */
+	public void add(Name name) {
+		ranking(name.getCountyId(), name.getGenderId(), true).add(new Entry(name.getNameId(), name.getGenderId(), name.getCount()));
+		updateState(name, 1);
+	}
+	
+	/**
+	 * Removes the name from the ranking of its county and updates its statewide total.
+	 * @param name the name that was removed from the year, with the count it was stored with
+	 */
+	public void remove(Name name) {
+		AVLTree<Entry> ranking = ranking(name.getCountyId(), name.getGenderId(), false);
+		if (ranking == null) {
+			return;
+		}
+		ranking.remove(new Entry(name.getNameId(), name.getGenderId(), name.getCount()));
+		updateState(name, -1);
+	}
+	
+	/**
+	 * Builds the rankings of an empty index from all names of a year at once.
+	 * Every ranking is sorted once and bulk loaded instead of being built with
+	 * one add per name.
+	 * @param names the names of the year, without duplicates
+	 */
+	public void load(List<Name> names) {
+		HashMap<Integer, ArrayList<Entry>> buckets = new HashMap<Integer, ArrayList<Entry>>();
+		for (Name name : names) {
+			bucket(buckets, key(name.getCountyId(), name.getGenderId())).add(new Entry(name.getNameId(), name.getGenderId(), name.getCount()));
+			int key = key(name.getNameId(), name.getGenderId());
+			int[] total = stateTotals.get(key);
+			if (total == null) {
+				total = new int[2];
+				stateTotals.put(key, total);
+			}
+			total[0] += name.getCount();
+			total[1]++;
+		}
+		for (Map.Entry<Integer, int[]> e : stateTotals.entrySet()) {
+			int nameId = e.getKey() >> 1;
+			int genderId = e.getKey() & 1;
+			bucket(buckets, key(ALL, genderId)).add(new Entry(nameId, genderId, e.getValue()[0]));
+		}
+		for (Map.Entry<Integer, ArrayList<Entry>> e : buckets.entrySet()) {
+			Collections.sort(e.getValue());
+			AVLTree<Entry> ranking = new AVLTree<Entry>();
+			ranking.bulkLoad(e.getValue());
+			rankings.put(e.getKey(), ranking);
+		}
+	}
+	
+	private static ArrayList<Entry> bucket(HashMap<Integer, ArrayList<Entry>> buckets, int key) {
+		ArrayList<Entry> bucket = buckets.get(key);
+		if (bucket == null) {
+			bucket = new ArrayList<Entry>();
+			buckets.put(key, bucket);
+		}
+		return bucket;
+	}
+	
+	/**
+	 * Moves the statewide entry of the name to its new total
+	 * @param name the name that was added or removed
+	 * @param sign 1 for an addition, -1 for a removal
+	 */
+	private void updateState(Name name, int sign) {
+		int key = key(name.getNameId(), name.getGenderId());
+		AVLTree<Entry> ranking = ranking(ALL, name.getGenderId(), true);
+		int[] total = stateTotals.get(key);
+		if (total == null) {
+			if (sign < 0) {
+				return;
+			}
+			total = new int[2];
+			stateTotals.put(key, total);
+		}
+		else {
+			ranking.remove(new Entry(name.getNameId(), name.getGenderId(), total[0]));
+		}
+		total[0] += sign * name.getCount();
+		total[1] += sign;
+		if (total[1] == 0) {
+			stateTotals.remove(key);
+		}
+		else {
+			ranking.add(new Entry(name.getNameId(), name.getGenderId(), total[0]));
+		}
+	}
+	
+	/**
+	 * Combines an id and a gender into one key
+	 * @param id id of a name or a county, or ALL
+	 * @param genderId 0 for female, 1 for male
+	 * @return the key
+	 */
+	private static int key(int id, int genderId) {
+		return (id << 1) + genderId;
+	}
+	
+	/**
+	 * Returns the ranking of a county and gender
+	 * @param countyId the county id, or ALL for the statewide ranking
+	 * @param genderId 0 for female, 1 for male
+	 * @param create whether a missing ranking should be created
+	 * @return the ranking, or null if it does not exist and create is not set
+	 */
+	private AVLTree<Entry> ranking(int countyId, int genderId, boolean create) {
+		int key = key(countyId, genderId);
+		AVLTree<Entry> ranking = rankings.get(key);
+		if (ranking == null && create) {
+			ranking = new AVLTree<Entry>();
+			rankings.put(key, ranking);
+		}
+		return ranking;
+	}
+	
+	/**
+	 * Returns the ranking of a county and gender given as strings
+	 * @return the ranking, or null if there is none
+	 */
+	private AVLTree<Entry> ranking(String county, String gender) {
+		int genderId = Name.genderId(gender);
+		int countyId = county.equalsIgnoreCase("ALL") ? ALL : StringDictionary.COUNTIES.lookup(county);
+		if (genderId < 0 || (countyId < 0 && countyId != ALL)) {
+			return null;
+		}
+		return ranking(countyId, genderId, false);
+	}
+	
+	/**
+	 * Returns the k most popular names of a gender in a county, most popular first.
+	 * @param k the number of names to return
+	 * @param county the county, or ALL for the whole state
+	 * @param gender the gender, f or m
+	 * @return a list of at most k entries ordered by decreasing count
+	 */
+	public List<Entry> topK(int k, String county, String gender) {
+		AVLTree<Entry> ranking = ranking(county, gender);
+		if (ranking == null) {
+			return new ArrayList<Entry>();
+		}
+		return ranking.first(k);
+	}
+	
+	/**
+	 * Returns the rank a name with the given count has in a county; names with
+	 * equal counts share the same rank.
+	 * @param count the count of the name
+	 * @param county the county, or ALL for the whole state
+	 * @param gender the gender, f or m
+	 * @return 1 plus the number of names of that gender with a higher count
+	 */
+	public int rankOfCount(int count, String county, String gender) {
+		AVLTree<Entry> ranking = ranking(county, gender);
+		if (ranking == null) {
+			return 1;
+		}
+		//the entry without a name sorts before all names with the same count
+		return ranking.rank(new Entry(Entry.NONE, Name.genderId(gender), count)) + 1;
+	}
+	
+	/**
+	 * Returns the total count of a name over all counties
+	 * @param name the name
+	 * @param gender the gender, f or m
+	 * @return the statewide count, or -1 if the name does not occur with that gender
+	 */
+	public int getStateCount(String name, String gender) {
+		int nameId = StringDictionary.NAMES.lookup(name);
+		int genderId = Name.genderId(gender);
+		if (nameId < 0 || genderId < 0) {
+			return -1;
+		}
+		int[] total = stateTotals.get(key(nameId, genderId));
+		return total == null ? -1 : total[0];
+	}
+	
+	/**
+	 * Entry of a ranking: a name, its gender and its count. Entries are ordered
+	 * by decreasing count and then alphabetically.
+	 */
+	public static class Entry implements Comparable<Entry> {
+		//name id of an entry that sorts before all entries with the same count
+		static final int NONE = -1;
+		
+		private int name;
+		private byte gender;
+		private int count;
+		
+		Entry(int nameId, int genderId, int count) {
+			this.name = nameId;
+			this.gender = (byte) genderId;
+			this.count = count;
+		}
+		
+		/**
+		 * get the name
+		 * @return the name of the entry
+		 */
+		public String getName() {
+			return StringDictionary.NAMES.get(name);
+		}
+		
+		/**
+		 * get the gender
+		 * @return the gender of the entry, F or M
+		 */
+		public String getGender() {
+			return Name.gender(gender);
+		}
+		
+		/**
+		 * get the count
+		 * @return the count of the entry
+		 */
+		public int getCount() {
+			return count;
+		}
+		
+		@Override
+		public int compareTo(Entry e) {
+			if (this.count != e.count) {
+				return this.count > e.count ? -1 : 1;
+			}
+			if (this.name != e.name) {
+				if (this.name == NONE || e.name == NONE) {
+					return this.name == NONE ? -1 : 1;
+				}
+				return StringDictionary.NAMES.compare(this.name, e.name);
+			}
+			return this.gender - e.gender;
+		}
+		
+		public String toString() {
+			return String.format("%s,%s,%d", getName(), getGender(), count);
+		}
+	}
+}
@@ -0,0 +1,322 @@
+package project5;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class serves queries about the loaded names over HTTP/1.1, so other
+ * programs can ask many questions without reading the file again. It answers
+ * GET requests for
+ *
+ * /histogram?name=N&amp;county=C&amp;format=text|csv|json - the fractions of all
+ * years, in the formats of BatchQueries (county defaults to ALL, format to text)
+ * /count?name=N&amp;county=C&amp;year=Y - the count of a name in one year
+ * /fraction?name=N&amp;county=C&amp;year=Y - the fraction of a name in one year
+ * /similar?name=N&amp;limit=L - names spelled or sounding like N, one per line
+ * /contains?name=T&amp;limit=L - names containing T, one per line
+ *
+ * The names found by the last two can be passed to the other queries.
+ *
+ * Connections are kept alive unless the client asks otherwise (HTTP/1.0
+ * clients have to ask for it with Connection: keep-alive), and requests
+ * that a client sends without waiting for the responses (pipelining) are
+ * answered in order; the responses are written together when no more requests
+ * are waiting. Every connection is handled by its own thread: a virtual thread
+ * when the Java runtime has them, otherwise a thread of a cached pool.
+ *
+ * @author Zhenghan Zhang
+ */
+public class QueryServer implements Closeable {
+	//longest request or header line that is accepted
+	private static final int MAX_LINE = 8192;
+	//a connection without requests for this long is closed
+	private static final int IDLE_MILLIS = 30000;
+	//number of names returned by a search without limit
+	private static final int SEARCH_LIMIT = 20;
+
+	private NamesQueries data;
+	private Map<BatchQueries.Format, BatchQueries> formats = new HashMap<BatchQueries.Format, BatchQueries>();
+	private ServerSocket socket;
+	private ExecutorService executor;
+	private Thread acceptor;
+
+	/**
+	 * Creates a server on a port of the local host. It accepts connections after start.
+	 * @param data the names to query
+	 * @param port the port, or 0 for any free port
+	 * @throws IOException if the port cannot be opened
+	 */
+	public QueryServer(NamesQueries data, int port) throws IOException {
+		this.data = data;
+		for (BatchQueries.Format format : BatchQueries.Format.values()) {
+			formats.put(format, new BatchQueries(data, format));
+		}
+		this.socket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+		this.executor = newThreadPerTaskExecutor();
+	}
+
+	/**
+	 * get the port the server listens on
+	 * @return the local port
+	 */
+	public int getPort() {
+		return socket.getLocalPort();
+	}
+
+	/**
+	 * Starts accepting connections in a background thread.
+	 */
+	public void start() {
+		acceptor = new Thread(() -> {
+			while (!socket.isClosed()) {
+				try {
+					Socket connection = socket.accept();
+					executor.execute(() -> serve(connection));
+				} catch (IOException e) {
+					//the socket was closed, or the connection failed before it was served
+				}
+			}
+		}, "QueryServer-" + getPort());
+		acceptor.start();
+	}
+
+	/**
+	 * Stops accepting connections and waits a moment for the open ones to finish.
+	 */
+	@Override
+	public void close() throws IOException {
+		socket.close();
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Creates an executor that runs every task in a new virtual thread, or in a
+	 * thread of a cached pool on a Java runtime without virtual threads.
+	 * @return the executor
+	 */
+	static ExecutorService newThreadPerTaskExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (ReflectiveOperationException | UnsupportedOperationException e) {
+			//virtual threads are missing, or a preview that is not enabled
+			return Executors.newCachedThreadPool(task -> {
+				Thread thread = new Thread(task);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	/*
+	 * Answers the requests of one connection until the client closes it or asks
+	 * to close it.
+	 */
+	private void serve(Socket connection) {
+		try (Socket s = connection) {
+			s.setSoTimeout(IDLE_MILLIS);
+			s.setTcpNoDelay(true);
+			InputStream in = new BufferedInputStream(s.getInputStream());
+			OutputStream out = new BufferedOutputStream(s.getOutputStream(), 1 << 16);
+			boolean open = true;
+			while (open) {
+				String requestLine = readLine(in);
+				if (requestLine == null) {
+					break;
+				}
+				if (requestLine.isEmpty()) {
+					continue;
+				}
+				String[] parts = requestLine.split(" ");
+				boolean keepAlive = parts.length == 3 && parts[2].equals("HTTP/1.1");
+				long contentLength = 0;
+				boolean badLength = false;
+				String line;
+				while ((line = readLine(in)) != null && !line.isEmpty()) {
+					int colon = line.indexOf(':');
+					if (colon < 0) {
+						continue;
+					}
+					String header = line.substring(0, colon).trim();
+					String value = line.substring(colon + 1).trim();
+					if (header.equalsIgnoreCase("Connection")) {
+						keepAlive = value.equalsIgnoreCase("keep-alive") || (keepAlive && !value.equalsIgnoreCase("close"));
+					}
+					else if (header.equalsIgnoreCase("Content-Length")) {
+						try {
+							contentLength = Long.parseLong(value);
+						} catch (NumberFormatException e) {
+							badLength = true;
+						}
+					}
+				}
+				if (line == null) {
+					break;
+				}
+				//a body is not used by any query, but it is skipped so the next request can be read
+				while (contentLength > 0) {
+					long skipped = in.skip(contentLength);
+					if (skipped <= 0) {
+						break;
+					}
+					contentLength -= skipped;
+				}
+				open = keepAlive;
+				if (parts.length != 3) {
+					respond(out, 400, "Bad Request", "Malformed request line\n", false);
+					break;
+				}
+				else if (badLength) {
+					//the end of the body is unknown, so no further request can be read
+					respond(out, 400, "Bad Request", "Invalid Content-Length\n", false);
+					break;
+				}
+				else if (!parts[0].equals("GET")) {
+					respond(out, 405, "Method Not Allowed", "Only GET is supported\n", open);
+				}
+				else {
+					try {
+						answer(out, parts[1], open);
+					} catch (RuntimeException e) {
+						//the connection is closed after a failed query, in case its state is broken
+						respond(out, 500, "Internal Server Error", "The query failed\n", false);
+						break;
+					}
+				}
+				//responses to pipelined requests are sent together
+				if (in.available() == 0) {
+					out.flush();
+				}
+			}
+			out.flush();
+		} catch (SocketTimeoutException | SocketException e) {
+			//the client was idle for too long or went away
+		} catch (IOException | RuntimeException e) {
+			//a broken request ends its connection only
+		}
+	}
+
+	/*
+	 * Answers the query of one target, like /count?name=Emma&year=2000.
+	 */
+	private void answer(OutputStream out, String target, boolean keepAlive) throws IOException {
+		int question = target.indexOf('?');
+		String path = question < 0 ? target : target.substring(0, question);
+		Map<String, String> query = parseQuery(question < 0 ? "" : target.substring(question + 1));
+		String name = query.get("name");
+		String county = query.getOrDefault("county", "ALL");
+		if (!path.equals("/histogram") && !path.equals("/count") && !path.equals("/fraction")
+				&& !path.equals("/similar") && !path.equals("/contains")) {
+			respond(out, 404, "Not Found", "Unknown query " + path + "\n", keepAlive);
+			return;
+		}
+		if (name == null || name.isEmpty()) {
+			respond(out, 400, "Bad Request", "The parameter name is missing\n", keepAlive);
+			return;
+		}
+		try {
+			if (path.equals("/histogram")) {
+				BatchQueries.Format format = BatchQueries.format(query.getOrDefault("format", "text"));
+				respond(out, 200, "OK", formats.get(format).answer(name, county), keepAlive);
+				return;
+			}
+			if (path.equals("/similar") || path.equals("/contains")) {
+				int limit = Integer.parseInt(query.getOrDefault("limit", String.valueOf(SEARCH_LIMIT)));
+				NameSearchIndex search = data.getSearchIndex();
+				StringBuilder body = new StringBuilder();
+				for (String found : path.equals("/similar") ? search.similar(name, limit) : search.containing(name, limit)) {
+					body.append(found).append('\n');
+				}
+				respond(out, 200, "OK", body.toString(), keepAlive);
+				return;
+			}
+			int year = Integer.parseInt(query.getOrDefault("year", ""));
+			YearQueries names = data.getYearQueries(year);
+			String body = path.equals("/count")
+					? names.getCountByNameCounty(name, county) + "\n"
+					: names.getFractionByNameCounty(name, county) + "\n";
+			respond(out, 200, "OK", body, keepAlive);
+		} catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+			//NumberFormatException of the year or limit is an IllegalArgumentException
+			respond(out, 400, "Bad Request", "Invalid year, format or limit\n", keepAlive);
+		}
+	}
+
+	/*
+	 * Decodes the parameters of the query part of a target.
+	 */
+	private static Map<String, String> parseQuery(String query) {
+		Map<String, String> parameters = new HashMap<String, String>();
+		for (String pair : query.split("&")) {
+			if (pair.isEmpty()) {
+				continue;
+			}
+			int equals = pair.indexOf('=');
+			String key = equals < 0 ? pair : pair.substring(0, equals);
+			String value = equals < 0 ? "" : pair.substring(equals + 1);
+			parameters.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+		return parameters;
+	}
+
+	private static void respond(OutputStream out, int status, String reason, String body, boolean keepAlive)
+			throws IOException {
+		byte[] content = body.getBytes(StandardCharsets.UTF_8);
+		String head = "HTTP/1.1 " + status + " " + reason + "\r\n"
+				+ "Content-Type: text/plain; charset=utf-8\r\n"
+				+ "Content-Length: " + content.length + "\r\n"
+				//HTTP/1.0 clients only keep a connection open when told so
+				+ (keepAlive ? "Connection: keep-alive\r\n" : "Connection: close\r\n")
+				+ "\r\n";
+		out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+		out.write(content);
+	}
+
+	/**
+	 * Reads one line of an HTTP message, without its line separator.
+	 * @param in the stream
+	 * @return the line, or null at the end of the stream
+	 * @throws IOException if the stream cannot be read or the line is too long
+	 */
+	static String readLine(InputStream in) throws IOException {
+		StringBuilder line = new StringBuilder();
+		int c;
+		while ((c = in.read()) != '\n') {
+			if (c < 0) {
+				return line.length() == 0 ? null : line.toString();
+			}
+			if (line.length() >= MAX_LINE) {
+				throw new IOException("Line too long");
+			}
+			line.append((char) c);
+		}
+		int length = line.length();
+		if (length > 0 && line.charAt(length - 1) == '\r') {
+			line.setLength(length - 1);
+		}
+		return line.toString();
+	}
+}
@@ -0,0 +1,162 @@
+package project5;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class assigns dense int ids to strings, ignoring case: all spellings of a
+ * string that are equal according to equalsIgnoreCase share one id, and the
+ * spelling seen first is kept as the value of the id. There are shared
+ * dictionaries for the names and the counties of the data set, so every Name
+ * only stores ids instead of its own copies of the strings.
+ *
+ * Ids are given in the order in which strings are first seen, so they do not
+ * follow the alphabetical order; compare orders two ids alphabetically using
+ * the case folded key of every id, which is computed once when the id is added.
+ * The dictionary may be used by several threads at once.
+ *
+ * @author Zhenghan Zhang
+ */
+public class StringDictionary {
+	//the dictionaries shared by all names
+	public static final StringDictionary NAMES = new StringDictionary(Integer.MAX_VALUE);
+	public static final StringDictionary COUNTIES = new StringDictionary(Short.MAX_VALUE + 1);
+
+	//largest number of ids this dictionary may hand out
+	private int capacity;
+	//ids of the strings, keyed by the case folded string
+	private ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	//spelling and case folded key of every id; replaced by larger copies when full
+	private volatile String[] values = new String[64];
+	private volatile String[] keys = new String[64];
+	private volatile int size;
+
+	/**
+	 * Creates an empty dictionary.
+	 * @param capacity the largest number of ids the dictionary may hand out
+	 */
+	public StringDictionary(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns the id of the string, adding the string if it is not in the dictionary yet.
+	 * @param value the string
+	 * @return the id of the string
+	 * @throws IllegalArgumentException if the string is new and the dictionary is full
+	 */
+	public int id(String value) {
+		String key = fold(value);
+		Integer id = ids.get(key);
+		if (id != null) {
+			return id;
+		}
+		synchronized (this) {
+			id = ids.get(key);
+			if (id != null) {
+				return id;
+			}
+			if (size == capacity) {
+				throw new IllegalArgumentException("Too many distinct values; the dictionary holds at most " + capacity);
+			}
+			String[] v = values;
+			String[] k = keys;
+			if (size == v.length) {
+				int length = (int) Math.min((long) v.length * 2, Integer.MAX_VALUE - 8);
+				v = Arrays.copyOf(v, length);
+				k = Arrays.copyOf(k, length);
+			}
+			id = size;
+			v[id] = value;
+			k[id] = key;
+			values = v;
+			keys = k;
+			size = id + 1;
+			//publish the id only once its value can be read
+			ids.put(key, id);
+			return id;
+		}
+	}
+
+	/**
+	 * Returns the id of the string without adding it.
+	 * @param value the string
+	 * @return the id of the string, or -1 if it is not in the dictionary
+	 */
+	public int lookup(String value) {
+		Integer id = ids.get(fold(value));
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the string of an id, as spelled the first time it was seen.
+	 * @param id the id
+	 * @return the string
+	 * @throws ArrayIndexOutOfBoundsException if the id was never handed out
+	 */
+	public String get(int id) {
+		if (id < 0 || id >= size) {
+			throw new ArrayIndexOutOfBoundsException("Invalid id " + id);
+		}
+		return values[id];
+	}
+
+	/**
+	 * Returns the case folded key of an id; keys compare with String.compareTo
+	 * the same way the strings compare with compareToIgnoreCase.
+	 * @param id the id
+	 * @return the key
+	 * @throws ArrayIndexOutOfBoundsException if the id was never handed out
+	 */
+	public String key(int id) {
+		if (id < 0 || id >= size) {
+			throw new ArrayIndexOutOfBoundsException("Invalid id " + id);
+		}
+		return keys[id];
+	}
+
+	/**
+	 * Returns the number of ids handed out so far; ids go from 0 to size() - 1.
+	 * @return the number of distinct strings
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Compares the strings of two ids alphabetically, ignoring case.
+	 * @param a the first id
+	 * @param b the second id
+	 * @return 0 if the ids are equal, otherwise a value with the sign of compareToIgnoreCase
+	 */
+	public int compare(int a, int b) {
+		if (a == b) {
+			return 0;
+		}
+		String[] k = keys;
+		return k[a].compareTo(k[b]);
+	}
+
+	/**
+	 * Folds the case of a string the same way compareToIgnoreCase does, so that two
+	 * strings are equal ignoring case exactly when their folded forms are equal.
+	 * @param value the string
+	 * @return the folded string
+	 */
+	public static String fold(String value) {
+		StringBuilder s = null;
+		for (int i = 0; i < value.length(); ) {
+			int c = value.codePointAt(i);
+			int f = Character.toLowerCase(Character.toUpperCase(c));
+			if (f != c && s == null) {
+				s = new StringBuilder(value.length());
+				s.append(value, 0, i);
+			}
+			if (s != null) {
+				s.appendCodePoint(f);
+			}
+			i += Character.charCount(c);
+		}
+		return s == null ? value : s.toString();
+	}
+}
@@ -1,13 +1,51 @@
 package project5;
 
-
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * @author Zhenghan Zhang
  */
 
-public class YearNames extends AVLTree<Name> {
+public class YearNames extends AVLTree<Name> implements YearQueries {
 	public int year;
+	//sum of the counts of all names stored for this year
+	private int totalCount;
+	//sums of the counts of names per county id and per gender id
+	private int[] countyTotals = new int[0];
+	private int[] genderTotals = new int[2];
+	//names of this year ordered by popularity; built on first use in snapshots
+	private volatile PopularityIndex popularity = new PopularityIndex();
+	//indexes that are told about every name added to or removed from this year
+	private CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+	
+	/**
+	 * Receives the names added to and removed from a YearNames, so that indexes
+	 * built from the year can be kept up to date. Listeners are called after the
+	 * change, once the year is unlocked again.
+	 */
+	public interface Listener {
+		/**
+		 * Called after a name was added to the year.
+		 * @param year the year
+		 * @param name the name that was added
+		 */
+		void added(YearNames year, Name name);
+		
+		/**
+		 * Called after a name was removed from the year.
+		 * @param year the year
+		 * @param name the name that was removed, with the count it was stored with
+		 */
+		void removed(YearNames year, Name name);
+	}
 	
 	/**
 	 * YearNames that accept a int year and output an AVLTree
@@ -15,7 +53,7 @@ public class YearNames extends AVLTree<Name> {
 	 * @throws IllegalArgumentException if year if out of range of 1900-2018
 	 */
 	public YearNames (int year)  throws IllegalArgumentException {
-		super();
+		super(Name::getCount);
 		//validate the range of the year
 		if (year < 1900 || year > 2018 )
 			throw new IllegalArgumentException("Invalid value for year. "
@@ -24,10 +62,284 @@ public class YearNames extends AVLTree<Name> {
 		this.year = year;		
 		}
 	
+	/**
+	 * Creates a read-only snapshot of a year; the caller holds the write lock of the source.
+	 * @param source the year to take a snapshot of
+	 */
+	private YearNames(YearNames source) {
+		super(source);
+		this.year = source.year;
+		this.totalCount = source.totalCount;
+		this.countyTotals = source.countyTotals.clone();
+		this.genderTotals = source.genderTotals.clone();
+		this.popularity = null;
+	}
+	
+	/**
+	 * Returns a read-only view of this year as it is now, including its totals.
+	 * The view shares the nodes of the tree, so taking it costs O(number of
+	 * counties); later changes of this year copy only the paths they change and
+	 * are not visible in the view. The view is read without locking; its
+	 * popularity index is built from the shared nodes when topK or rankOf is
+	 * first called on it. Listeners are not carried over.
+	 * @return the snapshot of this year
+	 */
+	@Override
+	public YearNames snapshot() {
+		long stamp = lock.writeLock();
+		try {
+			return new YearNames(this);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	/*
+	 * Returns the popularity index, building it first for a snapshot.
+	 */
+	private PopularityIndex popularity() {
+		PopularityIndex index = popularity;
+		if (index == null) {
+			synchronized (this) {
+				index = popularity;
+				if (index == null) {
+					index = new PopularityIndex();
+					index.load(collectFirst(numOfElements));
+					popularity = index;
+				}
+			}
+		}
+		return index;
+	}
+	
 
-	public void add(Name name) {
-		super.add(name);
+	/**
+	 * Add the name to this year and update the running totals.
+	 * @param name the name to be added
+	 * @return true if the name was added, false if it was null or already present
+	 */
+	@Override
+	public boolean add(Name name) {
+		long stamp = lock.writeLock();
+		try {
+			if (!insert(name)) {
+				return false;
+			}
+			updateTotals(name, name.getCount());
+			popularity.add(name);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+		for (Listener listener : listeners) {
+			listener.added(this, name);
+		}
+		return true;
+	}
+	
+	/**
+	 * Remove the name from this year and update the running totals.
+	 * @param name the name to be removed
+	 * @return true if the name was found and removed, false otherwise
+	 */
+	@Override
+	public boolean remove(Name name) {
+		Name stored;
+		long stamp = lock.writeLock();
+		try {
+			//the stored element may carry a different count than the target
+			stored = delete(name);
+			if (stored == null) {
+				return false;
+			}
+			updateTotals(stored, -stored.getCount());
+			popularity.remove(stored);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+		for (Listener listener : listeners) {
+			listener.removed(this, stored);
+		}
+		return true;
+	}
+	
+	/**
+	 * Replace the names of this year with the given sorted names and rebuild the
+	 * totals and the popularity index. Listeners are told about the removal of
+	 * every old name and the addition of every new one.
+	 * @param sorted the names in ascending order
+	 * @throws IllegalArgumentException if a name is null or the names are not sorted
+	 */
+	@Override
+	public void bulkLoad(Collection<? extends Name> sorted) {
+		List<Name> old;
+		List<Name> names;
+		long stamp = lock.writeLock();
+		try {
+			old = listeners.isEmpty() ? Collections.<Name>emptyList() : collectFirst(numOfElements);
+			rebuild(sorted);
+			names = collectFirst(numOfElements);
+			totalCount = 0;
+			Arrays.fill(countyTotals, 0);
+			Arrays.fill(genderTotals, 0);
+			for (Name name : names) {
+				updateTotals(name, name.getCount());
+			}
+			popularity = new PopularityIndex();
+			popularity.load(names);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+		for (Name name : old) {
+			for (Listener listener : listeners) {
+				listener.removed(this, name);
+			}
+		}
+		for (Name name : names) {
+			for (Listener listener : listeners) {
+				listener.added(this, name);
+			}
+		}
+	}
+	
+	/**
+	 * Registers a listener that is told about every later change of this year.
+	 * @param listener the listener
+	 */
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+	
+	/**
+	 * Unregisters a listener.
+	 * @param listener the listener
+	 */
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * Adds delta to the year, county and gender totals of the given name
+	 * @param name the name that was added or removed
+	 * @param delta the change of the totals
+	 */
+	private void updateTotals(Name name, int delta) {
+		totalCount += delta;
+		int county = name.getCountyId();
+		if (county >= countyTotals.length) {
+			countyTotals = Arrays.copyOf(countyTotals, Math.max(county + 1, countyTotals.length * 2));
+		}
+		countyTotals[county] += delta;
+		genderTotals[name.getGenderId()] += delta;
+	}
+	
+	/**
+	 * get the total number of babies in this year
+	 * @return the sum of the counts of all names
+	 */
+	public int getTotalCount() {
+		return lock.readInt(() -> totalCount);
+	}
+	
+	/**
+	 * get the total number of babies in a county in this year
+	 * @param county the name of the county (ALL for the whole state)
+	 * @return the sum of the counts of all names in that county
+	 */
+	public int getCountyTotal(String county) {
+		if (county.equalsIgnoreCase("ALL")) {
+			return getTotalCount();
+		}
+		return getCountyTotal(StringDictionary.COUNTIES.lookup(county));
+	}
+	
+	/**
+	 * get the total number of babies in a county in this year
+	 * @param countyId the id of the county
+	 * @return the sum of the counts of all names in that county, 0 for an unknown id
+	 */
+	int getCountyTotal(int countyId) {
+		return lock.readInt(() -> countyTotal(countyId));
+	}
+	
+	/*
+	 * Unlocked implementation of getCountyTotal.
+	 */
+	private int countyTotal(int countyId) {
+		int[] totals = countyTotals;
+		if (countyId < 0 || countyId >= totals.length) {
+			return 0;
+		}
+		return totals[countyId];
+	}
+	
+	/**
+	 * get the total number of babies of a gender in this year
+	 * @param gender the gender, f or m
+	 * @return the sum of the counts of all names of that gender
+	 */
+	public int getGenderTotal(String gender) {
+		int id = Name.genderId(gender);
+		return id < 0 ? 0 : lock.readInt(() -> genderTotals[id]);
 	}
+	
+	/**
+	 * get the totals of all counties in this year
+	 * @return a read-only map from every county with babies to the sum of the counts in that county
+	 */
+	public Map<String, Integer> getCountyTotals() {
+		int[] counties = lock.read(() -> countyTotals.clone());
+		TreeMap<String, Integer> totals = new TreeMap<String, Integer>(String.CASE_INSENSITIVE_ORDER);
+		for (int i = 0; i < counties.length; i++) {
+			if (counties[i] != 0) {
+				totals.put(StringDictionary.COUNTIES.get(i), counties[i]);
+			}
+		}
+		return Collections.unmodifiableMap(totals);
+	}
+	
+	/**
+	 * Copy the names of this year into a read-only FrozenYearNames, which answers
+	 * the same queries from sorted arrays. Later changes of this tree do not
+	 * affect the copy.
+	 * @return the frozen copy of this year
+	 */
+	public FrozenYearNames freeze() {
+		return lock.readLocked(this::copyColumns);
+	}
+	
+	/*
+	 * Unlocked implementation of freeze.
+	 */
+	private FrozenYearNames copyColumns() {
+		int n = numOfElements;
+		int[] names = new int[n];
+		short[] counties = new short[n];
+		byte[] genders = new byte[n];
+		int[] counts = new int[n];
+		int i = 0;
+		//inorder traversal with an explicit stack
+		ArrayDeque<Node<Name>> stack = new ArrayDeque<Node<Name>>();
+		Node<Name> node = root;
+		while (node != null || !stack.isEmpty()) {
+			while (node != null) {
+				stack.push(node);
+				node = node.left;
+			}
+			node = stack.pop();
+			names[i] = node.data.getNameId();
+			counties[i] = (short) node.data.getCountyId();
+			genders[i] = (byte) node.data.getGenderId();
+			counts[i] = node.data.getCount();
+			i++;
+			node = node.right;
+		}
+		return new FrozenYearNames(year, names, counties, genders, counts, countyTotals.clone());
+	}
+	
 	/**
 	 * get the year
 	 * @return the year of the YearNames
@@ -36,32 +348,159 @@ public class YearNames extends AVLTree<Name> {
 		return this.year;
 	}
 	
+	/**
+	 * get the k most popular names of a gender in a county
+	 * @param k the number of names
+	 * @param county the name of the county (ALL for the whole state)
+	 * @param gender the gender, f or m
+	 * @return at most k entries ordered by decreasing count
+	 */
+	public List<PopularityIndex.Entry> topK(int k, String county, String gender) {
+		long start = Metrics.start();
+		//the popularity index is not safe for optimistic readers
+		List<PopularityIndex.Entry> top = lock.readLocked(() -> popularity().topK(k, county, gender));
+		Metrics.query(Metrics.Query.TOP_K, start);
+		return top;
+	}
+	
+	/**
+	 * get the popularity rank of a name of a gender in a county; names with equal
+	 * counts share the same rank
+	 * @param name a String of name
+	 * @param county the name of the county (ALL for the whole state)
+	 * @param gender the gender, f or m
+	 * @return the rank starting from 1, or -1 if the name does not occur
+	 */
+	public int rankOf(String name, String county, String gender) {
+		long start = Metrics.start();
+		Name probe = county.equalsIgnoreCase("ALL") ? null : Name.find(name, gender, county);
+		int rank = lock.readLocked(() -> {
+			int count;
+			if (county.equalsIgnoreCase("ALL")) {
+				count = popularity().getStateCount(name, gender);
+			}
+			else {
+				Name stored = (probe == null) ? null : find(probe);
+				count = (stored == null) ? -1 : stored.getCount();
+			}
+			if (count < 0) {
+				return -1;
+			}
+			return popularity().rankOfCount(count, county, gender);
+		});
+		Metrics.query(Metrics.Query.RANK_OF, start);
+		return rank;
+	}
+	
+	/**
+	 * get the best popularity rank of a name in a county over both genders
+	 * @param name a String of name
+	 * @param county the name of the county (ALL for the whole state)
+	 * @return the rank starting from 1, or -1 if the name does not occur
+	 */
+	public int rankOf(String name, String county) {
+		int f = rankOf(name, county, "f");
+		int m = rankOf(name, county, "m");
+		if (f < 0 || m < 0) {
+			return Math.max(f, m);
+		}
+		return Math.min(f, m);
+	}
+	
+	/**
+	 * Passes the names of this year that start with a prefix, ignoring case, to
+	 * a consumer in alphabetical order. Every county and gender of a name is a
+	 * separate entry. Names are sorted by their case folded spelling, so the
+	 * matching names form one range of the tree and only that range and the
+	 * paths to it are visited.
+	 * @param prefix the start of the names
+	 * @param county the name of the county (ALL for the whole state)
+	 * @param consumer called for every matching entry; it must not change this year
+	 * @return the number of entries passed to the consumer
+	 */
+	public int namesWithPrefix(String prefix, String county, Consumer<? super Name> consumer) {
+		long start = Metrics.start();
+		String key = StringDictionary.fold(prefix);
+		int countyId = county.equalsIgnoreCase("ALL") ? -1 : StringDictionary.COUNTIES.lookup(county);
+		int[] passed = new int[1];
+		//an unknown county has no names, but the query is still counted
+		if (countyId >= 0 || county.equalsIgnoreCase("ALL")) {
+			scan(name -> {
+				String k = StringDictionary.NAMES.key(name.getNameId());
+				return k.startsWith(key) ? 0 : k.compareTo(key);
+			}, name -> {
+				if (countyId < 0 || name.getCountyId() == countyId) {
+					consumer.accept(name);
+					passed[0]++;
+				}
+			});
+		}
+		Metrics.query(Metrics.Query.NAMES_WITH_PREFIX, start);
+		return passed[0];
+	}
+	
 	/**
 	 * get the count of the babies with that name that year
 	 * @param name a String of name
 	 * @return the int value of the number of occurrences of that name
 	 */
 	public int getCountByName(String name) {
-		return realGetCountByName(name, root);
+		long start = Metrics.start();
+		int count = getCountByName(StringDictionary.NAMES.lookup(name));
+		Metrics.query(Metrics.Query.COUNT_BY_NAME, start);
+		return count;
+	}
+	
+	/**
+	 * get the count of the babies with that name that year
+	 * @param nameId the id of the name
+	 * @return the int value of the number of occurrences of that name, 0 for an unknown id
+	 */
+	int getCountByName(int nameId) {
+		if (nameId < 0) {
+			return 0;
+		}
+		return lock.readInt(() -> countByName(nameId));
+	}
+	
+	/*
+	 * Sums the counts of a name in the tree and counts the comparisons of the
+	 * descent; to be called under the lock or in an optimistic read.
+	 */
+	private int countByName(int nameId) {
+		int[] compared = Metrics.ENABLED ? new int[1] : null;
+		int count = realGetCountByName(nameId, root, 1, compared);
+		if (Metrics.ENABLED) {
+			Metrics.comparisons(Metrics.Operation.QUERY, compared[0]);
+		}
+		return count;
 	}
 	/**
 	 * The real method using recursion. This is used to get count by name
-	 * @param key the name
+	 * @param key the id of the name
 	 * @param node the travelled node
+	 * @param depth the depth of the node, used to detect a tree that changes while it is read
+	 * @param compared the number of comparisons so far in its only element, null if metrics are off
 	 * @return the total count of names
 	 */
-	private int realGetCountByName(String key, Node<Name> node) {
+	private int realGetCountByName(int key, Node<Name> node, int depth, int[] compared) {
 		if (node == null) {
 			return 0;
 		}
-		if (key.equalsIgnoreCase(node.data.getName())) {
-			return node.data.getCount() + realGetCountByName(key, node.left) + realGetCountByName(key, node.right);
+		checkDepth(depth);
+		if (Metrics.ENABLED) {
+			compared[0]++;
+		}
+		int i = StringDictionary.NAMES.compare(key, node.data.getNameId());
+		if (i == 0) {
+			return node.data.getCount() + realGetCountByName(key, node.left, depth + 1, compared)
+					+ realGetCountByName(key, node.right, depth + 1, compared);
 		}
-		else if (key.compareToIgnoreCase(node.data.getName())<0) {
-			return realGetCountByName(key, node.left);
+		else if (i < 0) {
+			return realGetCountByName(key, node.left, depth + 1, compared);
 		}
 		else {
-			return realGetCountByName(key, node.right);
+			return realGetCountByName(key, node.right, depth + 1, compared);
 		}
 	}
 	
@@ -71,19 +510,19 @@ public class YearNames extends AVLTree<Name> {
 	 * @return a double value of the fraction
 	 */
 	public double getFractionByName(String name) {
-		int m = this.getCountByName(name);
-		int i = this.getCount(root);
-		if (m == 0 && i ==0) {
-			return (double) 0;
-		}
-		return ((double) m/i);
-	}
-	
-	private int getCount(Node<Name> node) {
-		if (node == null) {
-			return 0;
-		}
-		return node.data.getCount() + getCount(node.left) + getCount(node.right);
+		long start = Metrics.start();
+		int nameId = StringDictionary.NAMES.lookup(name);
+		//count and total are read together, so they belong to the same state of the year
+		double fraction = lock.read(() -> {
+			int m = (nameId < 0) ? 0 : countByName(nameId);
+			int i = this.totalCount;
+			if (m == 0 && i ==0) {
+				return (double) 0;
+			}
+			return ((double) m/i);
+		});
+		Metrics.query(Metrics.Query.FRACTION_BY_NAME, start);
+		return fraction;
 	}
 	
 	/**
@@ -96,36 +535,77 @@ public class YearNames extends AVLTree<Name> {
 		if (county.equalsIgnoreCase("ALL")) {
 			return getCountByName(name);
 		}
-		return realGetCountByNameCounty(name, county, root);
+		long start = Metrics.start();
+		int count = getCountByNameCounty(StringDictionary.NAMES.lookup(name), StringDictionary.COUNTIES.lookup(county));
+		Metrics.query(Metrics.Query.COUNT_BY_NAME_COUNTY, start);
+		return count;
+	}
+	
+	/**
+	 * get the count of the babies with that name in a county that year
+	 * @param nameId the id of the name
+	 * @param countyId the id of the county
+	 * @return the int value of the number of occurrences of that name, 0 for an unknown id
+	 */
+	int getCountByNameCounty(int nameId, int countyId) {
+		if (nameId < 0 || countyId < 0) {
+			return 0;
+		}
+		return lock.readInt(() -> countByNameCounty(nameId, countyId));
+	}
+	
+	/*
+	 * Sums the counts of a name in a county in the tree and counts the
+	 * comparisons of the descent; to be called under the lock or in an optimistic read.
+	 */
+	private int countByNameCounty(int nameId, int countyId) {
+		int[] compared = Metrics.ENABLED ? new int[1] : null;
+		int count = realGetCountByNameCounty(nameId, countyId, root, 1, compared);
+		if (Metrics.ENABLED) {
+			Metrics.comparisons(Metrics.Operation.QUERY, compared[0]);
+		}
+		return count;
 	}
 	/**
 	 * The real recursive method used to get name count by county
-	 * @param name the name entered
-	 * @param county the county entered
+	 * @param name the id of the name entered
+	 * @param county the id of the county entered
 	 * @param node the travelled node
+	 * @param depth the depth of the node, used to detect a tree that changes while it is read
+	 * @param compared the number of comparisons so far in its only element, null if metrics are off
 	 * @return the count by county
 	 */
-	private int realGetCountByNameCounty(String name, String county, Node<Name> node){
+	private int realGetCountByNameCounty(int name, int county, Node<Name> node, int depth, int[] compared){
 		if (node == null) {
 			return 0;
 		}
-		if (name.equalsIgnoreCase(node.data.getName())) {
-			if(county.equalsIgnoreCase(node.data.getCounty())) {
-			return node.data.getCount() + realGetCountByNameCounty(name,county, node.left) + realGetCountByNameCounty(name,county, node.right);
+		checkDepth(depth);
+		if (Metrics.ENABLED) {
+			compared[0]++;
+		}
+		int i = StringDictionary.NAMES.compare(name, node.data.getNameId());
+		if (i == 0) {
+			if (Metrics.ENABLED) {
+				compared[0]++;
 			}
-			else if (county.compareToIgnoreCase(node.data.getCounty())<0){
-				return realGetCountByNameCounty(name,county,node.left);
+			int j = StringDictionary.COUNTIES.compare(county, node.data.getCountyId());
+			if(j == 0) {
+			return node.data.getCount() + realGetCountByNameCounty(name,county, node.left, depth + 1, compared)
+					+ realGetCountByNameCounty(name,county, node.right, depth + 1, compared);
+			}
+			else if (j < 0){
+				return realGetCountByNameCounty(name,county, node.left, depth + 1, compared);
 			}
 			else {
-				return realGetCountByNameCounty(name,county,node.right);
+				return realGetCountByNameCounty(name,county, node.right, depth + 1, compared);
 			}
 		}
 		
-		else if (name.compareToIgnoreCase(node.data.getName())<0) {
-			return realGetCountByNameCounty(name,county, node.left);
+		else if (i < 0) {
+			return realGetCountByNameCounty(name,county, node.left, depth + 1, compared);
 		}
 		else {
-			return realGetCountByNameCounty(name,county, node.right);
+			return realGetCountByNameCounty(name,county, node.right, depth + 1, compared);
 		}
 	}
 	
@@ -139,27 +619,20 @@ public class YearNames extends AVLTree<Name> {
 		if (county.equalsIgnoreCase("ALL")) {
 			return getFractionByName(name);
 		}
-		int m = this.getCountByNameCounty(name, county);
-		int i = getCountyCount(county,root);
-		if (m == 0 && i ==0) {
-			return (double) 0;
-		}
-		return ((double) m/i);
-	}
-	/**
-	 * The real recursive method that counts the occurrence of a certain county
-	 * @param county the county
-	 * @param node the travelled node
-	 * @return the number of counties
-	 */
-	private int getCountyCount(String county, Node<Name> node) {
-		if (node == null) {
-			return 0; 
-		}
-		if (county.equalsIgnoreCase(node.data.getCounty())) {
-			return node.data.getCount() + getCountyCount(county,node.left) + getCountyCount(county,node.right);
-		}
-		return getCountyCount(county,node.left) + getCountyCount(county,node.right);
+		long start = Metrics.start();
+		//normalize the query once; the descent only compares dictionary keys
+		int countyId = StringDictionary.COUNTIES.lookup(county);
+		int nameId = StringDictionary.NAMES.lookup(name);
+		double fraction = lock.read(() -> {
+			int m = (nameId < 0 || countyId < 0) ? 0 : countByNameCounty(nameId, countyId);
+			int i = countyTotal(countyId);
+			if (m == 0 && i ==0) {
+				return (double) 0;
+			}
+			return ((double) m/i);
+		});
+		Metrics.query(Metrics.Query.FRACTION_BY_NAME_COUNTY, start);
+		return fraction;
 	}
 	
 	@Override
@@ -0,0 +1,61 @@
+package project5;
+
+/**
+ * The queries that can be answered about the names of one year. They are
+ * implemented by the YearNames tree and by its read-only FrozenYearNames form.
+ * Names and counties are matched ignoring case; the county ALL stands for the
+ * whole state.
+ *
+ * @author Zhenghan Zhang
+ */
+public interface YearQueries {
+	
+	/**
+	 * get the year
+	 * @return the year of the names
+	 */
+	int getYear();
+	
+	/**
+	 * get the total number of babies in this year
+	 * @return the sum of the counts of all names
+	 */
+	int getTotalCount();
+	
+	/**
+	 * get the total number of babies in a county in this year
+	 * @param county the name of the county (ALL for the whole state)
+	 * @return the sum of the counts of all names in that county
+	 */
+	int getCountyTotal(String county);
+	
+	/**
+	 * get the count of the babies with that name that year
+	 * @param name a String of name
+	 * @return the int value of the number of occurrences of that name
+	 */
+	int getCountByName(String name);
+	
+	/**
+	 * get the fraction of the babies of the name divided by the total of babies that year
+	 * @param name a String of name
+	 * @return a double value of the fraction
+	 */
+	double getFractionByName(String name);
+	
+	/**
+	 * get the count of the babies with that name in a county that year
+	 * @param name a String of name
+	 * @param county the name of the county (ALL for the whole state)
+	 * @return the int value of the number of occurrences of that name
+	 */
+	int getCountByNameCounty(String name, String county);
+	
+	/**
+	 * get the fraction of the babies of the name divided by the total of babies in the county that year
+	 * @param name a String of name
+	 * @param county the name of the county (ALL for the whole state)
+	 * @return a double value of the fraction
+	 */
+	double getFractionByNameCounty(String name, String county);
+}
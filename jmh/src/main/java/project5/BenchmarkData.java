@@ -0,0 +1,112 @@
+package project5;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * The data of the benchmarks, generated from a fixed seed so that runs on
+ * different versions of the code measure the same work.
+ *
+ * @author Zhenghan Zhang
+ */
+public class BenchmarkData {
+	public static final long SEED = 20181001L;
+	//counties of the generated names; every name occurs in all of them with both genders
+	public static final int COUNTIES = 62;
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * Creates the given number of distinct names in sorted order, from the name
+	 * with the given index on; every name occurs in all counties with both genders.
+	 * @param size the number of names
+	 * @param firstName the index of the first name
+	 * @return the names, sorted
+	 */
+	public static Name[] names(int size, int firstName) {
+		Name[] names = new Name[size];
+		for (int i = 0; i < size; i++) {
+			int name = firstName + i / (2 * COUNTIES);
+			names[i] = new Name(name(name), i % 2 == 0 ? "F" : "M", 5 + (i * 31) % 500, county(i / 2 % COUNTIES));
+		}
+		Arrays.sort(names);
+		return names;
+	}
+
+	/**
+	 * get the number of different names of names(size, 0)
+	 * @param size the number of names
+	 * @return the number of names without counties and genders
+	 */
+	public static int nameCount(int size) {
+		return (size + 2 * COUNTIES - 1) / (2 * COUNTIES);
+	}
+
+	/**
+	 * Shuffles a copy of the names.
+	 * @param names the names
+	 * @return the names in random order
+	 */
+	public static Name[] shuffle(Name[] names) {
+		Name[] shuffled = names.clone();
+		Collections.shuffle(Arrays.asList(shuffled), new Random(SEED));
+		return shuffled;
+	}
+
+	/**
+	 * Spells a number as a capitalized name of letters, like the names of the file.
+	 * @param index the number
+	 * @return the name
+	 */
+	public static String name(int index) {
+		StringBuilder s = new StringBuilder();
+		do {
+			s.append((char) ('a' + index % 26));
+			index /= 26;
+		} while (index > 0);
+		while (s.length() < 4) {
+			s.append('a');
+		}
+		s.setCharAt(0, Character.toUpperCase(s.charAt(0)));
+		return s.toString();
+	}
+
+	/**
+	 * get the name of a generated county
+	 * @param index the number of the county
+	 * @return the name
+	 */
+	public static String county(int index) {
+		return "County" + name(index);
+	}
+
+	/**
+	 * Writes a csv file like the one of the state with the given number of rows,
+	 * each a different (year, name, county, gender).
+	 * @param rows the number of rows
+	 * @return the temporary file, deleted when the program ends
+	 * @throws IOException if the file cannot be written
+	 */
+	public static File csv(int rows) throws IOException {
+		File file = File.createTempFile("names", ".csv");
+		file.deleteOnExit();
+		Random random = new Random(SEED);
+		try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(file)))) {
+			writer.println("Year,First Name,County,Sex,Count");
+			int names = Math.max(1, rows / 119 / COUNTIES / 2);
+			for (int i = 0; i < rows; i++) {
+				int rest = i / 119;
+				writer.printf("%d,%s,%s,%s,%d%n", NamesDataset.FIRST_YEAR + i % 119, name(rest % names),
+						county(rest / names / 2 % COUNTIES), (rest / names) % 2 == 0 ? "F" : "M", 5 + random.nextInt(500));
+			}
+		}
+		return file;
+	}
+}
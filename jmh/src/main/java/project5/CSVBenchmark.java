@@ -0,0 +1,66 @@
+package project5;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Splits lines without quotes and lines with quoted fields, with
+ * NYSBabyNames.splitCSVLine and with a reused CSVTokenizer. Every invocation
+ * splits one line.
+ *
+ * @author Zhenghan Zhang
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CSVBenchmark {
+	private static final int LINES = 1 << 12;
+
+	@Param({"plain", "quoted"})
+	public String quoting;
+
+	private String[] lines;
+	private CSVTokenizer tokenizer = new CSVTokenizer();
+	private int next;
+
+	@Setup
+	public void lines() {
+		Random random = new Random(BenchmarkData.SEED);
+		lines = new String[LINES];
+		for (int i = 0; i < LINES; i++) {
+			int year = 1900 + random.nextInt(119);
+			String name = BenchmarkData.name(random.nextInt(100000));
+			String county = BenchmarkData.county(random.nextInt(BenchmarkData.COUNTIES));
+			lines[i] = quoting.equals("plain")
+					? year + "," + name + "," + county + ",F," + (5 + random.nextInt(500))
+					: year + ",\"" + name + ", \"\"" + name + "\"\"\"," + county + ",M," + (5 + random.nextInt(500));
+		}
+	}
+
+	@Benchmark
+	public List<String> splitCSVLine() {
+		return NYSBabyNames.splitCSVLine(lines[next++ & (LINES - 1)]);
+	}
+
+	@Benchmark
+	public void tokenize(Blackhole blackhole) {
+		blackhole.consume(tokenizer.tokenize(lines[next++ & (LINES - 1)]));
+		blackhole.consume(tokenizer.intField(4));
+	}
+}
@@ -0,0 +1,66 @@
+package project5;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads a year with YearNames.get and getCountByNameCounty while one writer
+ * keeps removing and adding names of the same year, which rotates the trees
+ * under the readers. Readers only look up the names with an even index, and the
+ * writer only changes the others. The reader threads of a group are set with
+ * -tg, for example -tg 4,1 for four readers and the writer.
+ *
+ * @author Zhenghan Zhang
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class ConcurrentReadBenchmark {
+	@Param({"10000", "1000000"})
+	public int size;
+
+	private YearNames year;
+	private Name[] names;
+
+	@Setup
+	public void year() {
+		names = BenchmarkData.names(size, 0);
+		year = new YearNames(2000);
+		year.bulkLoad(Arrays.asList(names));
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(3)
+	public int read() {
+		Name name = names[ThreadLocalRandom.current().nextInt(names.length) & ~1];
+		year.get(name);
+		return year.getCountByNameCounty(name.getNameId(), name.getCountyId());
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(1)
+	public boolean write() {
+		Name name = names[ThreadLocalRandom.current().nextInt(names.length) | 1];
+		//remove the name and add it back, which rebalances the path to it twice
+		return year.remove(name) && year.add(name);
+	}
+}
@@ -0,0 +1,50 @@
+package project5;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads a whole generated csv file of the given number of rows with
+ * ParallelLoader. Every invocation loads the file once.
+ *
+ * @author Zhenghan Zhang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class IngestBenchmark {
+	@Param({"1000", "10000", "100000", "1000000", "10000000"})
+	public int rows;
+
+	private File file;
+
+	@Setup
+	public void file() throws Exception {
+		file = BenchmarkData.csv(rows);
+	}
+
+	@TearDown
+	public void delete() {
+		file.delete();
+	}
+
+	@Benchmark
+	public NamesDataset load() throws Exception {
+		return new ParallelLoader().load(file);
+	}
+}
@@ -0,0 +1,81 @@
+package project5;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looks up names in a year of the given size with
+ * YearNames.getCountByNameCounty and getFractionByNameCounty: names that are
+ * in the year and names that are only in the dictionary, in the whole state
+ * and in one county. Every invocation is one lookup of the next of a fixed
+ * random list of probes.
+ *
+ * @author Zhenghan Zhang
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class QueryBenchmark {
+	//number of different probes, more than the caches of the processor hold
+	private static final int PROBES = 1 << 16;
+
+	@Param({"1000", "10000", "100000", "1000000", "10000000"})
+	public int size;
+
+	@Param({"hit", "miss"})
+	public String lookup;
+
+	@Param({"ALL", "county"})
+	public String county;
+
+	private YearNames year;
+	private String[] names;
+	private String[] counties;
+	private int next;
+
+	@Setup
+	public void year() {
+		Name[] sorted = BenchmarkData.names(size, 0);
+		year = new YearNames(2000);
+		year.bulkLoad(Arrays.asList(sorted));
+		//names that are not in the year have ids above those that are
+		Name[] probes = lookup.equals("hit")
+				? sorted
+				: BenchmarkData.names(Math.min(size, PROBES), BenchmarkData.nameCount(size));
+		Random random = new Random(BenchmarkData.SEED);
+		names = new String[PROBES];
+		counties = new String[PROBES];
+		for (int i = 0; i < PROBES; i++) {
+			Name probe = probes[random.nextInt(probes.length)];
+			names[i] = probe.getName();
+			counties[i] = county.equals("ALL") ? "ALL" : probe.getCounty();
+		}
+	}
+
+	@Benchmark
+	public int getCountByNameCounty() {
+		int i = next++ & (PROBES - 1);
+		return year.getCountByNameCounty(names[i], counties[i]);
+	}
+
+	@Benchmark
+	public double getFractionByNameCounty() {
+		int i = next++ & (PROBES - 1);
+		return year.getFractionByNameCounty(names[i], counties[i]);
+	}
+}
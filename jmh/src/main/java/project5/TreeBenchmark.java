@@ -0,0 +1,70 @@
+package project5;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds trees of all sizes by AVLTree.add and empties them again by
+ * AVLTree.remove, in random and in sorted order. Every invocation handles the
+ * whole tree, so the score is the time of size operations.
+ *
+ * @author Zhenghan Zhang
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class TreeBenchmark {
+	@Param({"1000", "10000", "100000", "1000000", "10000000", "20000000"})
+	public int size;
+
+	@Param({"random", "sorted"})
+	public String order;
+
+	private Name[] sorted;
+	private Name[] ordered;
+	private AVLTree<Name> empty;
+	private AVLTree<Name> full;
+
+	@Setup(Level.Trial)
+	public void names() {
+		sorted = BenchmarkData.names(size, 0);
+		ordered = order.equals("sorted") ? sorted : BenchmarkData.shuffle(sorted);
+	}
+
+	@Setup(Level.Invocation)
+	public void trees() {
+		empty = new AVLTree<Name>();
+		full = new AVLTree<Name>();
+		full.bulkLoad(sorted);
+	}
+
+	@Benchmark
+	public AVLTree<Name> add() {
+		for (Name name : ordered) {
+			empty.add(name);
+		}
+		return empty;
+	}
+
+	@Benchmark
+	public AVLTree<Name> remove() {
+		for (Name name : ordered) {
+			full.remove(name);
+		}
+		return full;
+	}
+}
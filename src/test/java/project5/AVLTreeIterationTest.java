@@ -0,0 +1,94 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the iterator and the spliterator of AVLTree.
+ *
+ * @author Zhenghan Zhang
+ */
+public class AVLTreeIterationTest {
+
+	private static AVLTree<Integer> tree(int size) {
+		AVLTree<Integer> tree = new AVLTree<Integer>();
+		for (int i = 0; i < size; i++) {
+			tree.add((i * 7919) % size);
+		}
+		return tree;
+	}
+
+	/*
+	 * Splits a spliterator as far as possible, checks every split and returns the
+	 * elements in order.
+	 */
+	private static void splitAll(Spliterator<Integer> spliterator, List<Integer> out, int[] splits) {
+		long size = spliterator.estimateSize();
+		Spliterator<Integer> prefix = spliterator.trySplit();
+		if (prefix == null) {
+			spliterator.forEachRemaining(out::add);
+			return;
+		}
+		splits[0]++;
+		assertTrue(prefix.estimateSize() > 0, "empty prefix of " + size);
+		assertTrue(spliterator.estimateSize() > 0, "empty suffix of " + size);
+		assertEquals(size, prefix.estimateSize() + spliterator.estimateSize());
+		splitAll(prefix, out, splits);
+		splitAll(spliterator, out, splits);
+	}
+
+	@Test
+	public void splitsAreNeverEmpty() {
+		for (int size = 0; size <= 300; size++) {
+			List<Integer> seen = new ArrayList<Integer>();
+			int[] splits = new int[1];
+			splitAll(tree(size).spliterator(), seen, splits);
+			assertEquals(size, seen.size());
+			for (int i = 0; i < size; i++) {
+				assertEquals(i, seen.get(i));
+			}
+			assertTrue(size < 2 || splits[0] > 0, "no split of " + size);
+		}
+	}
+
+	@Test
+	public void parallelStreamsSeeAllElementsInOrder() {
+		AVLTree<Integer> tree = tree(100000);
+		List<Integer> all = tree.stream().parallel().collect(Collectors.toList());
+		assertEquals(100000, all.size());
+		for (int i = 0; i < all.size(); i++) {
+			assertEquals(i, all.get(i));
+		}
+		assertEquals(100000L * 99999 / 2, tree.stream().parallel().mapToLong(Integer::longValue).sum());
+	}
+
+	@Test
+	public void iteratorsFailFast() {
+		AVLTree<Integer> tree = tree(100);
+		Iterator<Integer> iterator = tree.iterator();
+		iterator.next();
+		tree.add(1000);
+		assertThrows(ConcurrentModificationException.class, iterator::next);
+		Spliterator<Integer> spliterator = tree.spliterator();
+		tree.remove(1000);
+		assertThrows(ConcurrentModificationException.class, () -> spliterator.tryAdvance(i -> { }));
+	}
+
+	@Test
+	public void iteratorVisitsInOrder() {
+		int expected = 0;
+		for (int i : tree(1000)) {
+			assertEquals(expected++, i);
+		}
+		assertEquals(1000, expected);
+	}
+}
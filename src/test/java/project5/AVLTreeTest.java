@@ -0,0 +1,293 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of AVLTree against a TreeSet, checking the AVL property and the subtree
+ * aggregates after every change.
+ *
+ * @author Zhenghan Zhang
+ */
+public class AVLTreeTest {
+
+	/*
+	 * Checks the order, heights, balance and sizes of all nodes of a tree.
+	 */
+	private static <T extends Comparable<T>> void checkInvariants(AVLTree<T> tree) {
+		assertEquals(tree.size(), check(tree.root, null, null) == null ? 0 : tree.root.desc + 1);
+	}
+
+	/*
+	 * Checks a subtree whose items lie between lo and hi and returns its root.
+	 */
+	private static <T extends Comparable<T>> AVLTree.Node<T> check(AVLTree.Node<T> node, T lo, T hi) {
+		if (node == null) {
+			return null;
+		}
+		assertTrue(lo == null || lo.compareTo(node.data) < 0, "order");
+		assertTrue(hi == null || node.data.compareTo(hi) < 0, "order");
+		check(node.left, lo, node.data);
+		check(node.right, node.data, hi);
+		int left = node.left == null ? 0 : node.left.height;
+		int right = node.right == null ? 0 : node.right.height;
+		assertEquals(Math.max(left, right) + 1, node.height, "height");
+		assertTrue(Math.abs(left - right) <= 1, "balance");
+		int desc = (node.left == null ? 0 : node.left.desc + 1) + (node.right == null ? 0 : node.right.desc + 1);
+		assertEquals(desc, node.desc, "descendants");
+		return node;
+	}
+
+	@Test
+	public void randomAddsAndRemovesMatchATreeSet() {
+		Random random = new Random(4);
+		AVLTree<Integer> tree = new AVLTree<Integer>();
+		TreeSet<Integer> expected = new TreeSet<Integer>();
+		for (int i = 0; i < 20000; i++) {
+			Integer item = random.nextInt(2000);
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(item), tree.remove(item), "remove " + item);
+			}
+			else {
+				assertEquals(expected.add(item), tree.add(item), "add " + item);
+			}
+			if (i % 500 == 0) {
+				checkInvariants(tree);
+			}
+		}
+		checkInvariants(tree);
+		assertEquals(new ArrayList<Integer>(expected), tree.first(tree.size()));
+	}
+
+	@Test
+	public void sortedAddsStayBalanced() {
+		AVLTree<Integer> tree = new AVLTree<Integer>();
+		for (int i = 0; i < 1 << 16; i++) {
+			tree.add(i);
+		}
+		checkInvariants(tree);
+		assertEquals(17, tree.root.height);
+		for (int i = 0; i < 1 << 16; i += 2) {
+			assertTrue(tree.remove(i));
+		}
+		checkInvariants(tree);
+		assertEquals(1 << 15, tree.size());
+	}
+
+	@Test
+	public void missesLeaveTheTreeUnchanged() {
+		AVLTree<Integer> tree = new AVLTree<Integer>();
+		for (int i = 0; i < 100; i += 2) {
+			tree.add(i);
+		}
+		assertFalse(tree.add(10));
+		assertFalse(tree.remove(11));
+		assertFalse(tree.remove(null));
+		assertFalse(tree.add(null));
+		assertNull(tree.get(11));
+		assertEquals(50, tree.size());
+		checkInvariants(tree);
+	}
+
+	@Test
+	public void rankSelectAndRangesMatchATreeSet() {
+		Random random = new Random(2);
+		AVLTree<Integer> tree = new AVLTree<Integer>(i -> 3L * i);
+		TreeSet<Integer> expected = new TreeSet<Integer>();
+		for (int i = 0; i < 3000; i++) {
+			Integer item = random.nextInt(1000);
+			if (random.nextInt(4) == 0) {
+				tree.remove(item);
+				expected.remove(item);
+			}
+			else {
+				tree.add(item);
+				expected.add(item);
+			}
+		}
+		List<Integer> sorted = new ArrayList<Integer>(expected);
+		for (int k = 0; k < sorted.size(); k++) {
+			assertEquals(sorted.get(k), tree.select(k));
+			assertEquals(k, tree.rank(sorted.get(k)));
+		}
+		assertThrows(IndexOutOfBoundsException.class, () -> tree.select(-1));
+		assertThrows(IndexOutOfBoundsException.class, () -> tree.select(sorted.size()));
+		assertEquals(3L * expected.stream().mapToLong(i -> i).sum(), tree.sum());
+		for (int i = 0; i < 500; i++) {
+			int lo = random.nextInt(1100) - 50;
+			int hi = lo + random.nextInt(300) - 20;
+			assertEquals(expected.headSet(lo).size(), tree.rank(lo), "rank " + lo);
+			NavigableSet<Integer> in = lo > hi ? new TreeSet<Integer>() : expected.subSet(lo, true, hi, true);
+			assertEquals(in.size(), tree.rangeCount(lo, hi), lo + ".." + hi);
+			assertEquals(3L * in.stream().mapToLong(x -> x).sum(), tree.rangeSum(lo, hi), lo + ".." + hi);
+		}
+	}
+
+	@Test
+	public void firstReturnsTheSmallestItems() {
+		AVLTree<Integer> tree = new AVLTree<Integer>();
+		for (int i = 99; i >= 0; i--) {
+			tree.add(i);
+		}
+		assertEquals(List.of(0, 1, 2), tree.first(3));
+		assertEquals(100, tree.first(1000).size());
+		assertTrue(tree.first(0).isEmpty());
+		assertEquals(0, tree.sum());
+	}
+
+	@Test
+	public void bulkLoadBuildsAPerfectlyBalancedTree() {
+		for (int n = 0; n <= 300; n++) {
+			Integer[] items = new Integer[n];
+			for (int i = 0; i < n; i++) {
+				items[i] = 2 * i;
+			}
+			AVLTree<Integer> tree = new AVLTree<Integer>();
+			tree.add(-1);
+			tree.bulkLoad(items);
+			checkInvariants(tree);
+			assertEquals(n, tree.size());
+			//a perfectly balanced tree of n nodes is ceil(log2(n + 1)) high
+			assertEquals(32 - Integer.numberOfLeadingZeros(n), n == 0 ? 0 : tree.root.height, "size " + n);
+			assertEquals(List.of(items), tree.first(n));
+			//the tree stays an AVL tree under later changes
+			tree.add(2 * n + 1);
+			tree.remove(0);
+			tree.add(1);
+			checkInvariants(tree);
+		}
+	}
+
+	@Test
+	public void bulkLoadSkipsDuplicatesAndRejectsUnsortedItems() {
+		AVLTree<Integer> tree = new AVLTree<Integer>();
+		tree.bulkLoad(List.of(1, 1, 2, 3, 3, 3));
+		assertEquals(List.of(1, 2, 3), tree.first(10));
+		assertThrows(IllegalArgumentException.class, () -> tree.bulkLoad(List.of(1, 3, 2)));
+		assertThrows(IllegalArgumentException.class, () -> tree.bulkLoad(new Integer[] {1, null}));
+		//a rejected load leaves the tree as it was
+		assertEquals(List.of(1, 2, 3), tree.first(10));
+	}
+
+	@Test
+	public void snapshotsKeepTheirItemsWhileTheTreeChanges() {
+		Random random = new Random(17);
+		AVLTree<Integer> tree = new AVLTree<Integer>(i -> i);
+		List<AVLTree<Integer>> snapshots = new ArrayList<AVLTree<Integer>>();
+		List<List<Integer>> items = new ArrayList<List<Integer>>();
+		for (int i = 0; i < 10000; i++) {
+			if (i % 1000 == 0) {
+				snapshots.add(tree.snapshot());
+				items.add(tree.first(tree.size()));
+			}
+			Integer item = random.nextInt(3000);
+			if (random.nextInt(3) == 0) {
+				tree.remove(item);
+			}
+			else {
+				tree.add(item);
+			}
+		}
+		checkInvariants(tree);
+		for (int i = 0; i < snapshots.size(); i++) {
+			AVLTree<Integer> snapshot = snapshots.get(i);
+			checkInvariants(snapshot);
+			assertEquals(items.get(i), snapshot.first(snapshot.size() + 1));
+			assertEquals(items.get(i).stream().mapToLong(x -> x).sum(), snapshot.sum());
+		}
+	}
+
+	@Test
+	public void aChangeCopiesOnlyItsPath() {
+		AVLTree<Integer> tree = new AVLTree<Integer>();
+		for (int i = 0; i < 1023; i++) {
+			tree.add(2 * i);
+		}
+		AVLTree<Integer> snapshot = tree.snapshot();
+		tree.add(1001);
+		tree.remove(0);
+		Set<AVLTree.Node<Integer>> shared = Collections.newSetFromMap(new IdentityHashMap<AVLTree.Node<Integer>, Boolean>());
+		collect(snapshot.root, shared);
+		int copied = 0;
+		ArrayDeque<AVLTree.Node<Integer>> stack = new ArrayDeque<AVLTree.Node<Integer>>();
+		stack.push(tree.root);
+		while (!stack.isEmpty()) {
+			AVLTree.Node<Integer> node = stack.pop();
+			if (!shared.contains(node)) {
+				copied++;
+				if (node.left != null) {
+					stack.push(node.left);
+				}
+				if (node.right != null) {
+					stack.push(node.right);
+				}
+			}
+		}
+		//two paths and the nodes of a few rotations
+		assertTrue(copied <= 2 * tree.root.height + 4, copied + " nodes copied");
+		assertEquals(1023, snapshot.size());
+		assertNull(snapshot.get(1001));
+	}
+
+	private static void collect(AVLTree.Node<Integer> node, Set<AVLTree.Node<Integer>> nodes) {
+		if (node != null) {
+			nodes.add(node);
+			collect(node.left, nodes);
+			collect(node.right, nodes);
+		}
+	}
+
+	@Test
+	public void snapshotsAreReadOnly() {
+		AVLTree<Integer> tree = new AVLTree<Integer>();
+		tree.add(1);
+		AVLTree<Integer> snapshot = tree.snapshot();
+		assertThrows(UnsupportedOperationException.class, () -> snapshot.add(2));
+		assertThrows(UnsupportedOperationException.class, () -> snapshot.remove(1));
+		assertThrows(UnsupportedOperationException.class, () -> snapshot.bulkLoad(List.of(3)));
+		assertEquals(List.of(1), snapshot.first(5));
+		assertTrue(tree.add(2));
+	}
+
+	@Test
+	public void rangesVisitOnlyThePathsToTheirBounds() {
+		Random random = new Random(21);
+		AVLTree<Integer> tree = new AVLTree<Integer>();
+		TreeSet<Integer> expected = new TreeSet<Integer>();
+		for (int i = 0; i < 5000; i++) {
+			Integer item = random.nextInt(20000);
+			tree.add(item);
+			expected.add(item);
+		}
+		for (int i = 0; i < 300; i++) {
+			int lo = random.nextInt(21000) - 500;
+			int hi = lo + random.nextInt(400);
+			List<Integer> found = new ArrayList<Integer>();
+			assertEquals(expected.subSet(lo, true, hi, true).size(), tree.range(lo, hi, found::add));
+			assertEquals(new ArrayList<Integer>(expected.subSet(lo, true, hi, true)), found, lo + ".." + hi);
+
+			int[] located = new int[1];
+			int passed = tree.scan(item -> {
+				located[0]++;
+				return item < lo ? -1 : item > hi ? 1 : 0;
+			}, item -> { });
+			//the nodes of the range and at most two paths around it
+			assertTrue(located[0] <= passed + 2 * tree.root.height, located[0] + " nodes for " + passed);
+		}
+		assertEquals(0, tree.range(10, 5, item -> { }));
+	}
+}
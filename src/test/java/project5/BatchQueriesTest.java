@@ -0,0 +1,90 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of the formats and the order of the results of BatchQueries.
+ *
+ * @author Zhenghan Zhang
+ */
+public class BatchQueriesTest {
+	@TempDir
+	File dir;
+
+	private static String run(NamesQueries data, BatchQueries.Format format, String input) throws IOException {
+		StringWriter out = new StringWriter();
+		new BatchQueries(data, format).run(new BufferedReader(new StringReader(input)), out);
+		return out.toString();
+	}
+
+	@Test
+	public void resultsAreWrittenInEveryFormat() throws IOException {
+		NamesDataset dataset = TestData.dataset(dir, "2000,Bqann,Kings,F,1", "2000,Bqbea,Kings,F,3", "2001,Bqann,Erie,F,2",
+				"2001,\"Bq, Jr\",Erie,M,2");
+		String input = "Bqann\n\n  \nBqann,Kings\n\"Bq, Jr\",Erie\nBqnobody\n";
+
+		StringBuilder text = new StringBuilder("Bqann, ALL:\n");
+		NYSBabyNames.appendHistogram(text, 2000, new double[] {0.25, 0.5});
+		text.append("Bqann, Kings:\n");
+		NYSBabyNames.appendHistogram(text, 2000, new double[] {0.25, 0});
+		text.append("Bq, Jr, Erie:\n");
+		NYSBabyNames.appendHistogram(text, 2000, new double[] {0, 0.5});
+		text.append("Bqnobody, ALL:\n");
+		NYSBabyNames.appendHistogram(text, 2000, null);
+		assertEquals(text.toString(), run(dataset, BatchQueries.Format.TEXT, input));
+
+		assertEquals("name,county,year,fraction\n"
+				+ "Bqann,ALL,2000,0.25\nBqann,ALL,2001,0.5\n"
+				+ "Bqann,Kings,2000,0.25\nBqann,Kings,2001,0.0\n"
+				+ "\"Bq, Jr\",Erie,2000,0.0\n\"Bq, Jr\",Erie,2001,0.5\n"
+				+ "Bqnobody,ALL,,\n", run(dataset, BatchQueries.Format.CSV, input));
+
+		assertEquals("{\"name\":\"Bqann\",\"county\":\"ALL\",\"found\":true,\"firstYear\":2000,\"fractions\":[0.25,0.5]}\n"
+				+ "{\"name\":\"Bqann\",\"county\":\"Kings\",\"found\":true,\"firstYear\":2000,\"fractions\":[0.25,0.0]}\n"
+				+ "{\"name\":\"Bq, Jr\",\"county\":\"Erie\",\"found\":true,\"firstYear\":2000,\"fractions\":[0.0,0.5]}\n"
+				+ "{\"name\":\"Bqnobody\",\"county\":\"ALL\",\"found\":false}\n", run(dataset, BatchQueries.Format.JSON, input));
+	}
+
+	@Test
+	public void quotesAreEscaped() throws IOException {
+		NamesDataset dataset = TestData.dataset(dir, "2000,Bqann,Kings,F,1");
+		assertEquals("\"Bq\"\"x\",\"a,b\",,\n", new BatchQueries(dataset, BatchQueries.Format.CSV).answer("Bq\"x", "a,b"));
+		assertEquals("{\"name\":\"Bq\\\"x\\\\\\u0009\",\"county\":\"ALL\",\"found\":false}\n",
+				new BatchQueries(dataset, BatchQueries.Format.JSON).answer("Bq\"x\\\t", "ALL"));
+	}
+
+	@Test
+	public void resultsOfManyBlocksKeepTheOrderOfTheInput() throws IOException {
+		String[] rows = new String[40];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = (2000 + i % 3) + ",Bqname" + i + ",Kings,M," + (i + 1);
+		}
+		NamesDataset dataset = TestData.dataset(dir, rows);
+		BatchQueries batch = new BatchQueries(dataset, BatchQueries.Format.JSON);
+		StringBuilder input = new StringBuilder();
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 3000; i++) {
+			input.append("Bqname").append(i % 45).append('\n');
+			expected.append(batch.answer("Bqname" + i % 45, "ALL"));
+		}
+		StringWriter out = new StringWriter();
+		assertEquals(3000, batch.run(new BufferedReader(new StringReader(input.toString())), out));
+		assertEquals(expected.toString(), out.toString());
+	}
+
+	@Test
+	public void formatsAreParsedIgnoringCase() {
+		assertEquals(BatchQueries.Format.JSON, BatchQueries.format("Json"));
+		assertEquals(BatchQueries.Format.CSV, BatchQueries.format("csv"));
+		assertThrows(IllegalArgumentException.class, () -> BatchQueries.format("xml"));
+	}
+}
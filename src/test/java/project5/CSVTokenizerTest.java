@@ -0,0 +1,86 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of CSVTokenizer and of the queries split by it.
+ *
+ * @author Zhenghan Zhang
+ */
+public class CSVTokenizerTest {
+	private static final String[] LINES = {
+		"2000,Emma,Kings,F,35",
+		" 2000 , \"Mary, Ann\" ,Kings,F, 7 ",
+		"2000,“Smart, quotes”,Kings,F,1",
+		",,",
+		"",
+		"a,\"b\"\"c\",d",
+		"x,y ,  z  ",
+	};
+
+	@Test
+	public void fieldsEqualSplitCSVLine() {
+		CSVTokenizer tokenizer = new CSVTokenizer();
+		for (String line : LINES) {
+			List<String> fields = new ArrayList<String>();
+			for (int i = 0, n = tokenizer.tokenize(line); i < n; i++) {
+				fields.add(tokenizer.stringField(i));
+				assertEquals(fields.get(i), tokenizer.field(i).toString());
+			}
+			assertEquals(NYSBabyNames.splitCSVLine(line), fields, line);
+		}
+	}
+
+	@Test
+	public void randomLinesEqualSplitCSVLine() {
+		Random random = new Random(8);
+		String alphabet = "ab ,\"“”\t1-";
+		CSVTokenizer tokenizer = new CSVTokenizer();
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder line = new StringBuilder();
+			for (int j = random.nextInt(40); j > 0; j--) {
+				line.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			List<String> fields = new ArrayList<String>();
+			for (int f = 0, n = tokenizer.tokenize(line); f < n; f++) {
+				fields.add(tokenizer.stringField(f));
+			}
+			assertEquals(NYSBabyNames.splitCSVLine(line.toString()), fields, line.toString());
+		}
+	}
+
+	@Test
+	public void intFieldsFollowParseInt() {
+		CSVTokenizer tokenizer = new CSVTokenizer();
+		String[] values = {"0", "-0", "+7", "2147483647", "-2147483648", "007", "١٢"};
+		for (String value : values) {
+			tokenizer.tokenize("x," + value);
+			assertEquals(Integer.parseInt(value), tokenizer.intField(1), value);
+		}
+		for (String value : new String[] {"2147483648", "-2147483649", "-", "+", "1a", "1.5"}) {
+			tokenizer.tokenize("x," + value);
+			assertThrows(NumberFormatException.class, () -> tokenizer.intField(1), value);
+		}
+		tokenizer.tokenize("x,,y");
+		assertThrows(NumberFormatException.class, () -> tokenizer.intField(1));
+		assertThrows(IndexOutOfBoundsException.class, () -> tokenizer.intField(3));
+	}
+
+	@Test
+	public void queriesAreSplitWithOneTokenizer() {
+		CSVTokenizer tokenizer = new CSVTokenizer();
+		assertArrayEquals(new String[] {"Emma", "ALL"}, BatchQueries.parse(tokenizer, "Emma"));
+		assertArrayEquals(new String[] {"Emma", "Kings"}, BatchQueries.parse(tokenizer, " Emma, Kings"));
+		assertArrayEquals(new String[] {"Mary, Ann", "ALL"}, BatchQueries.parse(tokenizer, "\"Mary, Ann\",  "));
+		assertNull(BatchQueries.parse(tokenizer, ""));
+		assertNull(BatchQueries.parse(tokenizer, ",Kings"));
+	}
+}
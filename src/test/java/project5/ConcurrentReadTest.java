@@ -0,0 +1,87 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of reads of a YearNames while another thread keeps changing it.
+ *
+ * @author Zhenghan Zhang
+ */
+public class ConcurrentReadTest {
+	private static final int STABLE = 500;
+
+	@Test
+	public void readersSeeConsistentStatesDuringWrites() throws InterruptedException {
+		YearNames year = new YearNames(2000);
+		int total = 0;
+		for (int i = 0; i < STABLE; i++) {
+			year.add(new Name("Crstable" + i, "F", 1 + i, "Kings"));
+			total += 1 + i;
+		}
+		int stableTotal = total;
+		//the writer adds and removes the churn names, and one name whose count moves the total
+		Name mover = new Name("Crmover", "M", 1000, "Kings");
+		AtomicBoolean stop = new AtomicBoolean();
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread writer = new Thread(() -> {
+			int round = 0;
+			while (!stop.get()) {
+				for (int i = 0; i < 50; i++) {
+					year.add(new Name("Crchurn" + (round * 50 + i) % 400, "F", 1, "Erie"));
+				}
+				year.add(mover);
+				for (int i = 0; i < 50; i++) {
+					year.remove(new Name("Crchurn" + (round * 50 + i) % 400, "F", 1, "Erie"));
+				}
+				year.remove(mover);
+				round++;
+			}
+		});
+		List<Thread> readers = new ArrayList<Thread>();
+		for (int r = 0; r < 3; r++) {
+			int seed = r;
+			readers.add(new Thread(() -> {
+				try {
+					for (int i = seed; !stop.get(); i += 7) {
+						int id = i % STABLE;
+						assertEquals(1 + id, year.getCountByNameCounty("Crstable" + id, "Kings"));
+						//the count and the total of a fraction belong to the same state
+						double fraction = year.getFractionByNameCounty("Crstable" + id, "Kings");
+						assertTrue(fraction == (1.0 + id) / stableTotal || fraction == (1.0 + id) / (stableTotal + 1000), "fraction " + fraction);
+						int kings = year.getCountyTotal("Kings");
+						assertTrue(kings == stableTotal || kings == stableTotal + 1000, "total " + kings);
+						List<Name> first = year.first(20);
+						for (int k = 1; k < first.size(); k++) {
+							assertTrue(first.get(k - 1).compareTo(first.get(k)) < 0);
+						}
+						assertTrue(year.rank(new Name("Crstable" + id, "F", 1, "Kings")) >= 0);
+					}
+				}
+				catch (Throwable t) {
+					failure.compareAndSet(null, t);
+					stop.set(true);
+				}
+			}));
+		}
+		writer.start();
+		readers.forEach(Thread::start);
+		Thread.sleep(1500);
+		stop.set(true);
+		writer.join();
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+		assertEquals(STABLE, year.size());
+		assertEquals(stableTotal, year.getTotalCount());
+	}
+}
@@ -0,0 +1,72 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of FrozenYearNames against the YearNames it was frozen from.
+ *
+ * @author Zhenghan Zhang
+ */
+public class FrozenYearNamesTest {
+
+	@Test
+	public void frozenYearsAnswerLikeTheTree() {
+		YearNames year = new YearNames(2000);
+		Map<String, Name> names = TestData.fill(year, new HashMap<String, Name>(), 8, 3000);
+		FrozenYearNames frozen = year.freeze();
+		assertEquals(2000, frozen.getYear());
+		assertEquals(year.size(), frozen.size());
+		List<Name> sorted = year.first(year.size());
+		for (int i = 0; i < sorted.size(); i++) {
+			assertEquals(sorted.get(i), frozen.get(i));
+		}
+		TestData.checkAnswers(year, frozen, names.values());
+	}
+
+	@Test
+	public void frozenYearsDoNotChangeWithTheTree() {
+		YearNames year = new YearNames(2000);
+		Map<String, Name> names = TestData.fill(year, new HashMap<String, Name>(), 9, 1000);
+		YearNames copy = new YearNames(2000);
+		copy.bulkLoad(year.first(year.size()));
+		FrozenYearNames frozen = year.freeze();
+		TestData.fill(year, new HashMap<String, Name>(names), 10, 1000);
+		TestData.checkAnswers(copy, frozen, names.values());
+	}
+
+	@Test
+	public void theDirectoryOnlyHoldsTheNamesOfTheYear() {
+		YearNames other = new YearNames(1999);
+		TestData.fill(other, new HashMap<String, Name>(), 11, 2000);
+		//names get their ids in the opposite order of the tree
+		YearNames year = new YearNames(2000);
+		year.add(new Name("Fyzz", "F", 3, "Kings"));
+		year.add(new Name("Fyzz", "M", 4, "Erie"));
+		year.add(new Name("Fymm", "F", 5, "Kings"));
+		year.add(new Name("Fyaa", "M", 6, "Queens"));
+		FrozenYearNames frozen = year.freeze();
+		assertEquals(3, frozen.nameIds.limit());
+		assertEquals(7, frozen.getCountByName("FYZZ"));
+		assertEquals(5, frozen.getCountByNameCounty("fymm", "Kings"));
+		assertEquals(0, frozen.getCountByNameCounty("Fyaa", "Kings"));
+		for (Name name : other.first(other.size())) {
+			assertEquals(0, frozen.getCountByName(name.getNameId()));
+		}
+		assertEquals(0, frozen.getCountByName(-1));
+		assertEquals(0, frozen.getCountByName(Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void emptyYearsAreFrozen() {
+		FrozenYearNames frozen = new YearNames(2000).freeze();
+		assertEquals(0, frozen.size());
+		assertEquals(0, frozen.getTotalCount());
+		assertEquals(0.0, frozen.getFractionByName("Ann"));
+		assertEquals(0, frozen.getCountByNameCounty("Ann", "Kings"));
+	}
+}
@@ -0,0 +1,96 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of HistogramCache in front of a NamesDataset and a NamesSnapshot.
+ *
+ * @author Zhenghan Zhang
+ */
+public class HistogramCacheTest {
+	private static final int FIRST = NamesDataset.FIRST_YEAR;
+	private static final int LAST = NamesDataset.LAST_YEAR;
+
+	@TempDir
+	File dir;
+
+	private NamesDataset dataset() throws IOException {
+		return TestData.dataset(dir, "2000,Hana,Kings,F,10", "2000,Hana,Queens,F,30", "2000,Ivo,Kings,M,60",
+				"2001,Hana,Kings,F,5", "2001,Ivo,Queens,M,15");
+	}
+
+	@Test
+	public void hitsAndMissesEqualTheSource() throws IOException {
+		NamesDataset dataset = dataset();
+		HistogramCache cache = new HistogramCache(dataset, 1 << 20);
+		for (int i = 0; i < 2; i++) {
+			for (String county : new String[] {"ALL", "Kings", "Queens"}) {
+				assertArrayEquals(dataset.getFractions("Hana", county, FIRST, LAST),
+						cache.getFractions("hana", county, FIRST, LAST), county);
+			}
+		}
+		assertEquals(3, cache.getMisses());
+		assertEquals(3, cache.getHits());
+		assertNull(cache.getFractions("Nobody", "ALL", FIRST, LAST));
+	}
+
+	@Test
+	public void snapshotHistogramsEqualTheDataset() throws IOException {
+		NamesDataset dataset = dataset();
+		File file = new File(dir, "names.snapshot");
+		dataset.save(file);
+		HistogramCache cache = new HistogramCache(NamesSnapshot.open(file), 1 << 20);
+		assertArrayEquals(dataset.getFractions("Ivo", "ALL", FIRST, LAST), cache.getFractions("Ivo", "ALL", FIRST, LAST));
+		assertArrayEquals(dataset.getFractions("Ivo", "Kings", 1999, 2002), cache.getFractions("Ivo", "Kings", 1999, 2002));
+	}
+
+	@Test
+	public void changesInvalidateTheAffectedHistograms() throws IOException {
+		NamesDataset dataset = dataset();
+		HistogramCache cache = new HistogramCache(dataset, 1 << 20);
+		dataset.addListener(cache);
+		cache.getFractions("Hana", "Kings", FIRST, LAST);
+		cache.getFractions("Hana", "ALL", FIRST, LAST);
+		cache.getFractions("Ivo", "Queens", FIRST, LAST);
+		dataset.getYear(2000).add(new Name("Hana", "M", 20, "Kings"));
+		assertEquals(1, cache.size());
+		assertArrayEquals(dataset.getFractions("Hana", "Kings", FIRST, LAST), cache.getFractions("Hana", "Kings", FIRST, LAST));
+		//the total of Kings changed, so Ivo's fractions in Kings change too
+		assertArrayEquals(dataset.getFractions("Ivo", "Kings", FIRST, LAST), cache.getFractions("Ivo", "Kings", FIRST, LAST));
+	}
+
+	@Test
+	public void refreshedRowsInvalidateTheAffectedHistograms() throws IOException {
+		File file = TestData.csv(new File(dir, "names.csv"), "2000,Hana,Kings,F,10", "2001,Ivo,Kings,M,15");
+		NamesDataset dataset = new ParallelLoader().load(file);
+		HistogramCache cache = new HistogramCache(dataset, 1 << 20);
+		dataset.addListener(cache);
+		double[] before = cache.getFractions("Hana", "Kings", FIRST, LAST);
+		Files.write(file.toPath(), "2001,Hana,Kings,F,5\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		assertEquals(1, dataset.refresh());
+		double[] after = cache.getFractions("Hana", "Kings", FIRST, LAST);
+		assertArrayEquals(dataset.getFractions("Hana", "Kings", FIRST, LAST), after);
+		assertEquals(0.0, before[2001 - FIRST]);
+		assertEquals(0.25, after[2001 - FIRST]);
+	}
+
+	@Test
+	public void leastRecentlyUsedHistogramsAreEvicted() throws IOException {
+		NamesDataset dataset = dataset();
+		HistogramCache cache = new HistogramCache(dataset, 1);
+		cache.getFractions("Hana", "ALL", FIRST, LAST);
+		cache.getFractions("Ivo", "ALL", FIRST, LAST);
+		assertEquals(0, cache.size());
+		assertEquals(2, cache.getEvictions());
+	}
+}
@@ -0,0 +1,114 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of MappedCSVReader against NYSBabyNames.splitCSVLine.
+ *
+ * @author Zhenghan Zhang
+ */
+public class MappedCSVReaderTest {
+
+	private static MappedCSVReader reader(String text) {
+		return new MappedCSVReader(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static List<String> fields(MappedCSVReader reader) {
+		List<String> fields = new ArrayList<String>();
+		for (int i = 0; i < reader.fieldCount(); i++) {
+			fields.add(reader.stringField(i));
+		}
+		return fields;
+	}
+
+	@Test
+	public void rowsEqualSplitCSVLine() {
+		String[] lines = {"2000,Emma,Kings,F,35", " 2000 , \"Mary, Ann\" ,Kings,F, 7 ", "2000,“José, Luís”,Kings,F,1",
+				"a,\"b\"\"c\",d", "x,y ,  z  ", "Éloïse,É,é"};
+		StringBuilder text = new StringBuilder();
+		for (String line : lines) {
+			text.append(line).append("\r\n");
+		}
+		MappedCSVReader reader = reader(text.toString());
+		for (String line : lines) {
+			assertTrue(reader.nextRow());
+			assertTrue(reader.rowTerminated());
+			assertEquals(NYSBabyNames.splitCSVLine(line), fields(reader), line);
+		}
+		assertFalse(reader.nextRow());
+	}
+
+	@Test
+	public void theLastRowMayBeUnterminated() {
+		String text = "2000,Ann,Kings,F,7\n2000,Quinn,Kings,F,35";
+		MappedCSVReader reader = reader(text);
+		assertTrue(reader.nextRow());
+		assertEquals(19, reader.rowEnd());
+		assertEquals(7, reader.intField(4));
+		assertTrue(reader.nextRow());
+		assertFalse(reader.rowTerminated());
+		assertEquals(35, reader.intField(4));
+		assertEquals(text.length(), reader.rowEnd());
+	}
+
+	@Test
+	public void intFieldsOfCopiedFieldsAreParsed() {
+		MappedCSVReader reader = reader("\"1\"2,\"-\"34, - 4 \n");
+		assertTrue(reader.nextRow());
+		assertEquals("12", reader.stringField(0));
+		assertEquals(12, reader.intField(0));
+		assertEquals(-34, reader.intField(1));
+		assertEquals("- 4", reader.stringField(2));
+		assertThrows(NumberFormatException.class, () -> reader.intField(2));
+	}
+
+	@Test
+	public void randomRowsEqualSplitCSVLine() {
+		Random random = new Random(7);
+		String alphabet = "ab ,\"\u201c\u201d\t1-\u00e9\u4e2d";
+		List<String> lines = new ArrayList<String>();
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder line = new StringBuilder();
+			for (int j = random.nextInt(40); j > 0; j--) {
+				line.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			lines.add(line.toString());
+			text.append(line).append(random.nextBoolean() ? "\n" : "\r\n");
+		}
+		MappedCSVReader reader = reader(text.toString());
+		for (String line : lines) {
+			assertTrue(reader.nextRow());
+			assertEquals(NYSBabyNames.splitCSVLine(line), fields(reader), line);
+		}
+		assertFalse(reader.nextRow());
+	}
+
+	@Test
+	public void mappedRangesStartAtTheirOffset(@TempDir File dir) throws IOException {
+		File file = TestData.csv(new File(dir, "names.csv"), "2000,Ann,Kings,F,7", "2001,Bea,Erie,M,8");
+		int second = (TestData.HEADER + "2000,Ann,Kings,F,7\n").length();
+		try (FileChannel channel = FileChannel.open(file.toPath())) {
+			MappedCSVReader reader = MappedCSVReader.map(channel, second, file.length());
+			assertTrue(reader.nextRow());
+			assertEquals(0, reader.rowStart());
+			assertEquals(List.of("2001", "Bea", "Erie", "M", "8"), fields(reader));
+			assertEquals(file.length() - second, reader.rowEnd());
+			assertFalse(reader.nextRow());
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIfSystemProperty;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of Metrics. The build runs all tests with -Dproject5.metrics=true and
+ * this class once more without it, for the tests of the disabled counters.
+ *
+ * @author Zhenghan Zhang
+ */
+public class MetricsTest {
+	@TempDir
+	File dir;
+
+	private static long get(String key) {
+		Long value = Metrics.snapshot().get(key);
+		assertTrue(value != null, key);
+		return value;
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "project5.metrics", matches = "(?i)true")
+	public void everyPrefixQueryIsCounted() throws IOException {
+		YearNames year = TestData.dataset(dir, "2000,Ada,Kings,F,10", "2000,Adam,Kings,M,30").getYear(2000);
+		long before = get("query.NAMES_WITH_PREFIX.count");
+		assertEquals(2, year.namesWithPrefix("ad", "ALL", name -> { }));
+		assertEquals(0, year.namesWithPrefix("ad", "Nowhere", name -> { }));
+		assertEquals(before + 2, get("query.NAMES_WITH_PREFIX.count"));
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "project5.metrics", matches = "(?i)true")
+	public void rowsAreCountedByReason() throws IOException {
+		long rows = get("ingest.rows");
+		long gender = get("ingest.rejected.GENDER");
+		long year = get("ingest.rejected.YEAR");
+		TestData.dataset(dir, "2000,Ada,Kings,F,10", "2000,Ada,Kings,X,10", "1800,Ada,Kings,F,10");
+		//the header line is a row that is rejected as well
+		assertEquals(rows + 4, get("ingest.rows"));
+		assertEquals(gender + 1, get("ingest.rejected.GENDER"));
+		assertEquals(year + 1, get("ingest.rejected.YEAR"));
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "project5.metrics", matches = "(?i)true")
+	public void documentedKeysArePublished() throws JMException {
+		Map<String, Long> snapshot = Metrics.snapshot();
+		for (String key : new String[] {"tree.rotations.LL", "query.TOP_K.p99Nanos", "tree.comparisons.ADD"}) {
+			assertTrue(snapshot.containsKey(key), key);
+		}
+		Metrics.register();
+		Metrics.register();
+		Object enabled = ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName("project5:type=Metrics"), "Enabled");
+		assertEquals(Boolean.TRUE, enabled);
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "project5.metrics", matches = "(?i)true")
+	public void treeChangesAreCounted() {
+		long adds = get("tree.operations.ADD");
+		AVLTree<Integer> tree = new AVLTree<Integer>();
+		for (int i = 0; i < 100; i++) {
+			tree.add(i);
+		}
+		assertEquals(adds + 100, get("tree.operations.ADD"));
+		assertTrue(Metrics.get().getMaxHeightRatio() < 1.45);
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "project5.metrics", matches = "(?i)true")
+	public void heightsAreThoseOfTheTreesNow() {
+		//taller than the trees of the other tests
+		Integer[] items = new Integer[1 << 19];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = i;
+		}
+		AVLTree<Integer> tree = new AVLTree<Integer>();
+		tree.bulkLoad(items);
+		assertEquals(20, get("tree.maxHeight"));
+		tree.bulkLoad(new Integer[] {1, 2, 3});
+		assertTrue(get("tree.maxHeight") < 20);
+		assertTrue(Metrics.get().getMaxHeightRatio() < 1.45);
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "project5.metrics", matches = "(?i)true")
+	public void queryDescentsAreCounted() throws IOException {
+		YearNames year = TestData.dataset(dir, "2000,Ada,Kings,F,10", "2000,Adam,Kings,M,30", "2000,Ada,Erie,F,5").getYear(2000);
+		long queries = get("tree.operations.QUERY");
+		long comparisons = get("tree.comparisons.QUERY");
+		assertEquals(15, year.getCountByName("ada"));
+		assertEquals(5, year.getCountByNameCounty("Ada", "Erie"));
+		assertEquals(2, year.rankOf("Ada", "Kings", "f") + year.rankOf("Adam", "ALL", "m"));
+		assertEquals(queries + 4, get("tree.operations.QUERY"));
+		assertTrue(get("tree.comparisons.QUERY") >= comparisons + 4);
+	}
+
+	@Test
+	@DisabledIfSystemProperty(named = "project5.metrics", matches = "(?i)true")
+	public void nothingIsCountedWhenDisabled() throws IOException, JMException {
+		assertFalse(Metrics.ENABLED);
+		assertFalse(Metrics.get().isEnabled());
+		YearNames year = TestData.dataset(dir, "2000,Ada,Kings,F,10", "2000,Adam,Kings,M,30", "2000,Ada,Kings,X,1").getYear(2000);
+		AVLTree<Integer> tree = new AVLTree<Integer>();
+		for (int i = 0; i < 100; i++) {
+			tree.add(i);
+		}
+		tree.remove(5);
+		assertEquals(10, year.getCountByName("Ada"));
+		assertEquals(10, year.getCountByNameCounty("Ada", "Kings"));
+		assertEquals(0.25, year.getFractionByName("Ada"));
+		assertEquals(1, year.rankOf("Adam", "ALL", "m"));
+		assertEquals(1, year.topK(1, "Kings", "f").size());
+		assertEquals(1, year.namesWithPrefix("adam", "ALL", name -> { }));
+		assertEquals(0, Metrics.start());
+		Map<String, Long> snapshot = Metrics.snapshot();
+		assertTrue(snapshot.containsKey("query.TOP_K.count"));
+		for (Map.Entry<String, Long> entry : snapshot.entrySet()) {
+			assertEquals(0L, entry.getValue(), entry.getKey());
+		}
+		assertEquals(0.0, Metrics.get().getMaxHeightRatio());
+		Metrics.register();
+		Object enabled = ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName("project5:type=Metrics"), "Enabled");
+		assertEquals(Boolean.FALSE, enabled);
+	}
+}
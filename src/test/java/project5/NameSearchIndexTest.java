@@ -0,0 +1,117 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of NameSearchIndex on dictionaries of its own.
+ *
+ * @author Zhenghan Zhang
+ */
+public class NameSearchIndexTest {
+
+	@Test
+	public void phoneticCodesFollowAmericanSoundex() {
+		String[][] codes = {{"Robert", "R163"}, {"Rupert", "R163"}, {"Rubin", "R150"}, {"Ashcraft", "A261"},
+				{"Tymczak", "T522"}, {"Pfister", "P236"}, {"Honeyman", "H555"}, {"Jackson", "J250"}, {"jaxon", "J250"},
+				{"Lee", "L000"}, {"O'Hara", "O600"}, {"", ""}, {"123", ""}};
+		for (String[] code : codes) {
+			assertEquals(code[1], NameSearchIndex.phoneticCode(code[0]), code[0]);
+		}
+	}
+
+	@Test
+	public void containingMatchesAFilterOfAllNames() {
+		Random random = new Random(23);
+		StringDictionary dictionary = new StringDictionary(Integer.MAX_VALUE);
+		NameSearchIndex index = new NameSearchIndex(dictionary);
+		List<String> names = new ArrayList<String>();
+		for (int round = 0; round < 3; round++) {
+			//names added after the index was created are found as well
+			for (int i = 0; i < 500; i++) {
+				StringBuilder name = new StringBuilder();
+				for (int j = 2 + random.nextInt(6); j > 0; j--) {
+					name.append("abcdeAB".charAt(random.nextInt(7)));
+				}
+				if (dictionary.lookup(name.toString()) < 0) {
+					names.add(name.toString());
+				}
+				dictionary.id(name.toString());
+			}
+			names.sort(String::compareToIgnoreCase);
+			for (String text : new String[] {"", "a", "B", "ab", "cde", "AbCd", "abcdea", "z", "aaaaaaaa"}) {
+				List<String> expected = new ArrayList<String>();
+				for (String name : names) {
+					if (name.toLowerCase().contains(text.toLowerCase())) {
+						expected.add(name);
+					}
+				}
+				assertEquals(expected, index.containing(text, Integer.MAX_VALUE), text);
+				assertEquals(expected.subList(0, Math.min(3, expected.size())), index.containing(text, 3), text);
+			}
+		}
+		assertEquals(0, index.update());
+	}
+
+	@Test
+	public void concurrentUpdatesIndexEveryNameOnce() throws InterruptedException {
+		StringDictionary dictionary = new StringDictionary(Integer.MAX_VALUE);
+		NameSearchIndex index = new NameSearchIndex(dictionary);
+		AtomicBoolean stop = new AtomicBoolean();
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		//an update that read the size before another update finished must not index backwards
+		List<Thread> updaters = new ArrayList<Thread>();
+		for (int t = 0; t < 3; t++) {
+			updaters.add(new Thread(() -> {
+				try {
+					while (!stop.get()) {
+						index.update();
+					}
+				}
+				catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			}));
+		}
+		updaters.forEach(Thread::start);
+		List<String> names = new ArrayList<String>();
+		long end = System.nanoTime() + 1_000_000_000L;
+		for (int i = 0; System.nanoTime() < end && failure.get() == null; i++) {
+			names.add("Nsi" + i);
+			dictionary.id("Nsi" + i);
+		}
+		stop.set(true);
+		for (Thread updater : updaters) {
+			updater.join();
+		}
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+		names.sort(String::compareToIgnoreCase);
+		assertEquals(names, index.containing("nsi", Integer.MAX_VALUE));
+		assertEquals(0, index.update());
+	}
+
+	@Test
+	public void similarNamesAreSpelledOrSoundAlike() {
+		StringDictionary dictionary = new StringDictionary(Integer.MAX_VALUE);
+		for (String name : new String[] {"Jackson", "Jaxon", "Jaxson", "Jakob", "Jacob", "Maria", "Mariah", "Zoe"}) {
+			dictionary.id(name);
+		}
+		NameSearchIndex index = new NameSearchIndex(dictionary);
+		List<String> similar = index.similar("jaxon", 10);
+		assertEquals("Jaxon", similar.get(0));
+		assertTrue(similar.contains("Jackson") && similar.contains("Jaxson"), similar.toString());
+		assertTrue(!similar.contains("Maria") && !similar.contains("Zoe"), similar.toString());
+		assertEquals(List.of("Maria", "Mariah"), index.similar("Maria", 2));
+		assertTrue(index.similar("Mariah", 1).size() == 1);
+		assertTrue(index.similar("Qqqq", 5).isEmpty());
+	}
+}
@@ -0,0 +1,91 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of NameSeries against the queries of every year of a dataset.
+ *
+ * @author Zhenghan Zhang
+ */
+public class NameSeriesTest {
+	private static final String[] COUNTIES = {"ALL", "Kings", "Erie", "Nowhere"};
+
+	@TempDir
+	File dir;
+
+	private static void check(NamesDataset dataset, String name) {
+		NameSeries series = dataset.getSeries();
+		for (String county : COUNTIES) {
+			int[] counts = series.getCounts(name, county, 1990, 2010);
+			boolean found = false;
+			for (int year = 1990; year <= 2010; year++) {
+				YearNames names = dataset.getYear(year);
+				assertEquals(names.getCountByNameCounty(name, county), counts[year - 1990], name + " " + county + " " + year);
+				assertEquals(names.getCountyTotal(county), series.getTotal(county, year), county + " " + year);
+				found |= counts[year - 1990] != 0;
+			}
+			double[] fractions = series.getFractions(name, county, 1990, 2010);
+			if (!found) {
+				assertNull(fractions, name + " " + county);
+				continue;
+			}
+			for (int year = 1990; year <= 2010; year++) {
+				assertEquals(dataset.getYear(year).getFractionByNameCounty(name, county), fractions[year - 1990], name + " " + county + " " + year);
+			}
+		}
+	}
+
+	@Test
+	public void seriesFollowLoadsAndChangesOfTheYears() throws IOException {
+		Random random = new Random(12);
+		String[] rows = new String[3000];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = (1995 + random.nextInt(10)) + ",Ns" + random.nextInt(40) + "," + COUNTIES[1 + random.nextInt(2)]
+					+ "," + (random.nextBoolean() ? "F" : "M") + "," + (1 + random.nextInt(50));
+		}
+		NamesDataset dataset = TestData.dataset(dir, rows);
+		for (int i = 0; i < 40; i++) {
+			check(dataset, "Ns" + i);
+		}
+
+		//changes of single names and a bulk load of a whole year are followed
+		YearNames year = dataset.getYear(2000);
+		for (int i = 0; i < 300; i++) {
+			Name name = new Name("Ns" + random.nextInt(45), random.nextBoolean() ? "F" : "M", 1 + random.nextInt(50), COUNTIES[1 + random.nextInt(2)]);
+			if (random.nextBoolean()) {
+				year.remove(name);
+			}
+			else {
+				year.add(name);
+			}
+		}
+		List<Name> names = new ArrayList<Name>(dataset.getYear(1999).first(10));
+		names.add(new Name("Ns44", "F", 3, "Erie"));
+		names.sort(null);
+		dataset.getYear(1996).bulkLoad(names);
+		for (int i = 0; i < 45; i++) {
+			check(dataset, "Ns" + i);
+		}
+	}
+
+	@Test
+	public void rangesOutsideTheDataAreEmpty() throws IOException {
+		NamesDataset dataset = TestData.dataset(dir, "2000,Nsonly,Kings,F,5");
+		NameSeries series = dataset.getSeries();
+		assertNull(series.getFractions("Nsonly", "Kings", 2001, 2005));
+		assertNull(series.getFractions("Nsonly", "Kings", 2000, 1999));
+		assertArrayEquals(new int[] {0, 5, 0}, series.getCounts("Nsonly", "ALL", 1999, 2001));
+		assertArrayEquals(new double[] {1.0}, series.getFractions("nsONLY", "kings", 2000, 2000));
+		assertEquals(0, series.getTotal("Kings", 1800));
+	}
+}
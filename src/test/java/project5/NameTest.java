@@ -0,0 +1,60 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of the dictionary encoding of Name.
+ *
+ * @author Zhenghan Zhang
+ */
+public class NameTest {
+	@TempDir
+	File dir;
+
+	@Test
+	public void equalStringsShareIds() {
+		Name a = new Name("Orla", "f", 3, "Kings");
+		Name b = new Name("ORLA", "M", 4, "kings");
+		assertEquals(a.getNameId(), b.getNameId());
+		assertEquals(a.getCountyId(), b.getCountyId());
+		assertEquals("Orla", b.getName());
+		assertEquals("M", b.getGender());
+	}
+
+	@Test
+	public void invalidNamesAddNothingToTheDictionaries() {
+		assertThrows(IllegalArgumentException.class, () -> new Name("Rejectedgender", "X", 5, "Rejectedcounty"));
+		assertThrows(IllegalArgumentException.class, () -> new Name("Rejectedcount", "F", -1, "Rejectedcounty"));
+		assertThrows(IllegalArgumentException.class, () -> new Name("Rejectedcounty", "F", 5, ""));
+		assertThrows(IllegalArgumentException.class, () -> new Name("", "F", 5, "Rejectedcounty"));
+		for (String name : new String[] {"Rejectedgender", "Rejectedcount", "Rejectedcounty"}) {
+			assertTrue(StringDictionary.NAMES.lookup(name) < 0, name);
+		}
+		assertTrue(StringDictionary.COUNTIES.lookup("Rejectedcounty") < 0);
+	}
+
+	@Test
+	public void rejectedRowsAreNotSearchable() throws IOException {
+		NamesDataset dataset = TestData.dataset(dir, "2000,Keptname,Kings,F,5", "2000,Badgendername,Kings,X,5",
+				"1500,Badyearname,Kings,F,5", "2000,Badcountname,Kings,F,-5", "2000,Shortrowname,Kings,F");
+		for (String name : new String[] {"Badgendername", "Badyearname", "Badcountname", "Shortrowname"}) {
+			assertTrue(StringDictionary.NAMES.lookup(name) < 0, name);
+			assertFalse(dataset.getSearchIndex().similar(name, 10).contains(name), name);
+		}
+		assertTrue(dataset.getSearchIndex().similar("Keptname", 10).contains("Keptname"));
+	}
+
+	@Test
+	public void findDoesNotAddNames() {
+		assertEquals(null, Name.find("Neverseenname", "F", "Kings"));
+		assertTrue(StringDictionary.NAMES.lookup("Neverseenname") < 0);
+	}
+}
@@ -0,0 +1,117 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of NamesCube against sums over the names of every year.
+ *
+ * @author Zhenghan Zhang
+ */
+public class NamesCubeTest {
+	private static final String[] NAMES = {null, "Cube0", "cube1", "Cube7", "Nocube"};
+	private static final String[] COUNTIES = {"ALL", "Cubecounty0", "CUBECOUNTY2", "Nowhere"};
+	private static final String[] GENDERS = {"ALL", "f", "M", "X"};
+
+	@TempDir
+	File dir;
+
+	private NamesDataset dataset;
+	private NamesCube cube;
+
+	@BeforeEach
+	public void build() throws IOException {
+		Random random = new Random(25);
+		String[] rows = new String[4000];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = (1995 + random.nextInt(12)) + ",Cube" + random.nextInt(30) + ",Cubecounty" + random.nextInt(4)
+					+ "," + (random.nextBoolean() ? "F" : "M") + "," + (1 + random.nextInt(100));
+		}
+		dataset = TestData.dataset(dir, rows);
+		cube = NamesCube.build(dataset);
+	}
+
+	/*
+	 * Sums the counts of the names that match every filter; null and ALL match everything.
+	 */
+	private long brute(String name, String county, String gender, int firstYear, int lastYear) {
+		long sum = 0;
+		for (int year = Math.max(firstYear, NamesDataset.FIRST_YEAR); year <= Math.min(lastYear, NamesDataset.LAST_YEAR); year++) {
+			for (Name n : dataset.getYear(year)) {
+				if ((name == null || n.getName().equalsIgnoreCase(name))
+						&& (county.equals("ALL") || n.getCounty().equalsIgnoreCase(county))
+						&& (gender.equals("ALL") || n.getGender().equalsIgnoreCase(gender))) {
+					sum += n.getCount();
+				}
+			}
+		}
+		return sum;
+	}
+
+	@Test
+	public void sumsEqualTheSumsOverAllYears() {
+		assertEquals(1995, cube.getFirstYear());
+		assertEquals(2006, cube.getLastYear());
+		int[][] ranges = {{1995, 2006}, {1900, 2018}, {2000, 2000}, {1998, 2003}, {1990, 1996}, {2005, 2010}, {2003, 2001}};
+		for (String name : NAMES) {
+			for (String county : COUNTIES) {
+				for (String gender : GENDERS) {
+					for (int[] range : ranges) {
+						long expected = gender.equals("X") ? 0 : brute(name, county, gender, range[0], range[1]);
+						assertEquals(expected, cube.sum(name, county, gender, range[0], range[1]),
+								name + " " + county + " " + gender + " " + range[0] + ".." + range[1]);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void groupsEqualTheSumsOfTheirValues() {
+		for (String name : new String[] {null, "Cube3"}) {
+			for (String county : new String[] {"ALL", "Cubecounty1"}) {
+				Map<String, Long> years = cube.groupBy(NamesCube.Dimension.YEAR, name, county, "ALL", 1999, 2002);
+				assertEquals(List.of("1999", "2000", "2001", "2002"), List.copyOf(years.keySet()));
+				for (Map.Entry<String, Long> e : years.entrySet()) {
+					int year = Integer.parseInt(e.getKey());
+					assertEquals(brute(name, county, "ALL", year, year), (long) e.getValue());
+				}
+				Map<String, Long> genders = cube.groupBy(NamesCube.Dimension.GENDER, name, county, "m", 1999, 2002);
+				assertEquals(brute(name, county, "F", 1999, 2002), (long) genders.get("F"));
+				assertEquals(brute(name, county, "M", 1999, 2002), (long) genders.get("M"));
+			}
+			Map<String, Long> counties = cube.groupBy(NamesCube.Dimension.COUNTY, name, "Nowhere", "f", 1995, 2006);
+			assertEquals(4, counties.size());
+			for (Map.Entry<String, Long> e : counties.entrySet()) {
+				assertEquals(brute(name, e.getKey(), "F", 1995, 2006), (long) e.getValue(), e.getKey());
+			}
+		}
+		Map<String, Long> names = cube.groupBy(NamesCube.Dimension.NAME, "ignored", "Cubecounty2", "ALL", 2000, 2004);
+		long total = 0;
+		for (Map.Entry<String, Long> e : names.entrySet()) {
+			assertEquals(brute(e.getKey(), "Cubecounty2", "ALL", 2000, 2004), (long) e.getValue(), e.getKey());
+			total += e.getValue();
+		}
+		assertEquals(brute(null, "Cubecounty2", "ALL", 2000, 2004), total);
+	}
+
+	@Test
+	public void topKeepsTheLargestGroups() {
+		LinkedHashMap<String, Long> groups = new LinkedHashMap<String, Long>();
+		groups.put("a", 5L);
+		groups.put("b", 9L);
+		groups.put("c", 1L);
+		groups.put("d", 7L);
+		assertEquals(List.of("b", "d"), List.copyOf(NamesCube.top(groups, 2).keySet()));
+		assertEquals(4, NamesCube.top(groups, 10).size());
+	}
+}
@@ -0,0 +1,72 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of NamesSnapshot: a saved dataset opens with the same answers.
+ *
+ * @author Zhenghan Zhang
+ */
+public class NamesSnapshotTest {
+	@TempDir
+	File dir;
+
+	@Test
+	public void snapshotsAnswerLikeTheDataset() throws IOException {
+		Random random = new Random(13);
+		String[] rows = new String[3000];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = (1990 + random.nextInt(20)) + ",Snap" + random.nextInt(60) + ",Snapcounty" + random.nextInt(4)
+					+ "," + (random.nextBoolean() ? "F" : "M") + "," + (1 + random.nextInt(50));
+		}
+		NamesDataset dataset = TestData.dataset(dir, rows);
+		File file = new File(dir, "names.snapshot");
+		dataset.save(file);
+		assertTrue(NamesSnapshot.isSnapshot(file));
+		NamesSnapshot snapshot = NamesSnapshot.open(file);
+		assertEquals(dataset.getMinYear(), snapshot.getMinYear());
+		assertEquals(dataset.getMaxYear(), snapshot.getMaxYear());
+		for (int year = NamesDataset.FIRST_YEAR; year <= NamesDataset.LAST_YEAR; year++) {
+			YearNames names = dataset.getYear(year);
+			TestData.checkAnswers(names, snapshot.getYear(year), names.first(names.size()));
+			assertEquals(names.size(), snapshot.getYear(year).size());
+		}
+		for (int i = 0; i < 62; i++) {
+			for (String county : new String[] {"ALL", "Snapcounty1", "Nowhere"}) {
+				assertArrayEquals(dataset.getFractions("Snap" + i, county, 1985, 2015),
+						snapshot.getFractions("Snap" + i, county, 1985, 2015), "Snap" + i + " " + county);
+			}
+		}
+		assertEquals("Snap7", snapshot.getSearchIndex().similar("Snap7", 3).get(0));
+
+		//opening the same file again finds the strings in the dictionaries already
+		assertEquals(snapshot.getYear(2000).getTotalCount(), NamesSnapshot.open(file).getYear(2000).getTotalCount());
+	}
+
+	@Test
+	public void otherFilesAreRejected() throws IOException {
+		File csv = TestData.csv(new File(dir, "names.csv"), "2000,Ann,Kings,F,7");
+		assertFalse(NamesSnapshot.isSnapshot(csv));
+		assertThrows(IOException.class, () -> NamesSnapshot.open(csv));
+
+		File file = new File(dir, "names.snapshot");
+		TestData.dataset(dir, "2000,Ann,Kings,F,7").save(file);
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		File cut = new File(dir, "cut.snapshot");
+		Files.write(cut.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+		assertTrue(NamesSnapshot.isSnapshot(cut));
+		assertThrows(IOException.class, () -> NamesSnapshot.open(cut));
+	}
+}
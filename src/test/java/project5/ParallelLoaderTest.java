@@ -0,0 +1,204 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of ParallelLoader, and of NamesDataset.refresh after a load.
+ *
+ * @author Zhenghan Zhang
+ */
+public class ParallelLoaderTest {
+	@TempDir
+	File dir;
+
+	private static void append(File file, String text) throws IOException {
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.US_ASCII),
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	@Test
+	public void loadReadsAnUnterminatedLastLine() throws IOException {
+		File file = new File(dir, "names.csv");
+		append(file, TestData.HEADER + "2000,Ann,Kings,F,7\n2000,Bea,Kings,F,9\n2000,Cat,Kings,F,5");
+		NamesDataset dataset = new ParallelLoader().load(file);
+		assertEquals(5, dataset.getYear(2000).getCountByNameCounty("Cat", "Kings"));
+		assertEquals(file.length(), dataset.getOffset());
+		//the name main removes is the one of the last row
+		assertEquals(new Name("Cat", "F", 5, "Kings"), dataset.lastName);
+		dataset.getYears().get(dataset.lastYear).remove(dataset.lastName);
+		assertEquals(0.4375, dataset.getYear(2000).getFractionByName("Ann"));
+		assertEquals(0.5625, dataset.getYear(2000).getFractionByName("Bea"));
+
+		//refresh leaves an incomplete line until its line separator is appended
+		append(file, "\n2000,Dan,Kings,M,3\n2000,Eve,Kings,F,1");
+		assertEquals(1, dataset.refresh());
+		assertEquals(0, dataset.getYear(2000).getCountByName("Eve"));
+		append(file, "0\n");
+		assertEquals(1, dataset.refresh());
+		assertEquals(10, dataset.getYear(2000).getCountByName("Eve"));
+		assertEquals(file.length(), dataset.getOffset());
+	}
+
+	@Test
+	public void loadOfACutFileAndRefreshEqualAFullLoad() throws IOException {
+		StringBuilder rows = new StringBuilder(TestData.HEADER);
+		for (int i = 0; i < 20000; i++) {
+			rows.append(NamesDataset.FIRST_YEAR + i % 119).append(",Name").append(i / 119)
+					.append(",County").append(i % 7).append(i % 2 == 0 ? ",F," : ",M,").append(5 + i % 300).append('\n');
+		}
+		String text = rows.toString();
+		File full = new File(dir, "full.csv");
+		append(full, text);
+		File growing = new File(dir, "growing.csv");
+		int cut = text.length() * 2 / 3;
+		while (text.charAt(cut - 1) != '\n') {
+			cut++;
+		}
+		append(growing, text.substring(0, cut));
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			NamesDataset expected = new ParallelLoader(pool).load(full);
+			NamesDataset dataset = new ParallelLoader(pool).load(growing);
+			append(growing, text.substring(cut));
+			dataset.refresh();
+			for (int year = NamesDataset.FIRST_YEAR; year <= NamesDataset.LAST_YEAR; year++) {
+				assertEquals(expected.getYear(year).size(), dataset.getYear(year).size(), "names of " + year);
+				assertEquals(expected.getYear(year).getCountByNameCounty("Name1", "ALL"),
+						dataset.getYear(year).getCountByNameCounty("Name1", "ALL"), "Name1 in " + year);
+			}
+			assertEquals(full.length(), dataset.getOffset());
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void loadEqualsAddingTheRowsInOrder() throws IOException {
+		//more than one range of MIN_CHUNK bytes, with duplicates, invalid rows and quoted names
+		Random random = new Random(6);
+		String[] rows = new String[30000];
+		for (int i = 0; i < rows.length; i++) {
+			int year = 1995 + random.nextInt(10);
+			String name = random.nextInt(50) == 0 ? "\"Pl, " + random.nextInt(20) + "\"" : "Pl" + random.nextInt(400);
+			String gender = random.nextInt(500) == 0 ? "X" : random.nextBoolean() ? "F" : "M";
+			rows[i] = year + "," + name + ",Plcounty" + random.nextInt(5) + "," + gender + "," + (random.nextInt(100) - 1);
+		}
+		File file = TestData.csv(new File(dir, "rows.csv"), rows);
+		HashMap<Integer, YearNames> expected = new HashMap<Integer, YearNames>();
+		for (String row : rows) {
+			ArrayList<String> fields = NYSBabyNames.splitCSVLine(row);
+			try {
+				Name name = new Name(fields.get(1), fields.get(3), Integer.parseInt(fields.get(4)), fields.get(2));
+				int year = Integer.parseInt(fields.get(0));
+				expected.computeIfAbsent(year, YearNames::new).add(name);
+			}
+			catch (IllegalArgumentException e) {
+				//the loader skips the row as well
+			}
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			NamesDataset dataset = new ParallelLoader(pool).load(file);
+			assertEquals(1995, dataset.getMinYear());
+			assertEquals(2004, dataset.getMaxYear());
+			for (int year = 1995; year <= 2004; year++) {
+				YearNames names = expected.get(year);
+				assertEquals(names.first(names.size()).toString(), dataset.getYear(year).first(names.size() + 1).toString(), "year " + year);
+				assertEquals(names.getFractionByName("Pl7"), dataset.getYear(year).getFractionByName("Pl7"));
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void loadAndLastNameEqualAScanOfTheLines() throws IOException {
+		//the line by line read of main before the loader, on files without a last line separator
+		Random random = new Random(14);
+		for (String last : new String[] {"2003,Pllast,Plcounty1,F,4", "2003,Pl7,Plcounty2,M,9", "2003,Plbad,Plcounty1,X,4"}) {
+			StringBuilder text = new StringBuilder(TestData.HEADER);
+			for (int i = 0; i < 20000; i++) {
+				String gender = random.nextInt(500) == 0 ? "X" : random.nextBoolean() ? "F" : "M";
+				text.append(1995 + random.nextInt(10)).append(",Pl").append(random.nextInt(400)).append(",Plcounty")
+						.append(random.nextInt(5)).append(',').append(gender).append(',').append(random.nextInt(100) - 1)
+						.append(random.nextBoolean() ? "\n" : "\r\n");
+			}
+			File file = new File(dir, "scanned" + last.length() + last.charAt(5) + ".csv");
+			append(file, text + last);
+
+			ArrayList<YearNames> expected = new ArrayList<YearNames>();
+			for (int year = NamesDataset.FIRST_YEAR; year <= NamesDataset.LAST_YEAR; year++) {
+				expected.add(new YearNames(year));
+			}
+			Name lastName = null;
+			int lastYear = 0;
+			try (Scanner lines = new Scanner(file)) {
+				while (lines.hasNextLine()) {
+					ArrayList<String> fields = NYSBabyNames.splitCSVLine(lines.nextLine());
+					try {
+						Name name = new Name(fields.get(1), fields.get(3), Integer.parseInt(fields.get(4)), fields.get(2));
+						lastName = name;
+						lastYear = Integer.parseInt(fields.get(0)) - NamesDataset.FIRST_YEAR;
+						expected.get(lastYear).add(name);
+					}
+					catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+						//skipped
+					}
+				}
+			}
+			expected.get(lastYear).remove(lastName);
+
+			ForkJoinPool pool = new ForkJoinPool(4);
+			try {
+				NamesDataset dataset = new ParallelLoader(pool).load(file);
+				assertEquals(lastName, dataset.lastName, last);
+				dataset.getYears().get(dataset.lastYear).remove(dataset.lastName);
+				for (int year = 1995; year <= 2004; year++) {
+					YearNames names = expected.get(year - NamesDataset.FIRST_YEAR);
+					assertEquals(names.first(names.size()).toString(), dataset.getYear(year).first(names.size() + 1).toString(),
+							last + " " + year);
+				}
+			}
+			finally {
+				pool.shutdown();
+			}
+		}
+	}
+
+	@Test
+	public void refreshSkipsInvalidRowsAndKnownNames() throws IOException {
+		File file = new File(dir, "refreshed.csv");
+		append(file, TestData.HEADER + "2000,Ann,Kings,F,7\n");
+		NamesDataset dataset = new ParallelLoader().load(file);
+		assertEquals(0, dataset.refresh());
+		append(file, "2000,Ann,Kings,F,9\n2000,Bad,Kings,X,1\n1800,Old,Kings,F,1\n2010,New,Kings,M,4\n");
+		assertEquals(1, dataset.refresh());
+		assertEquals(7, dataset.getYear(2000).getCountByNameCounty("Ann", "Kings"));
+		assertEquals(4, dataset.getYear(2010).getCountByName("New"));
+		assertEquals(2010, dataset.getMaxYear());
+		assertEquals(file.length(), dataset.getOffset());
+
+		Files.write(file.toPath(), TestData.HEADER.getBytes(StandardCharsets.US_ASCII));
+		assertThrows(IOException.class, dataset::refresh);
+		NamesDataset built = new NamesDataset(new ArrayList<YearNames>(), 2000, 2000);
+		assertThrows(IllegalStateException.class, built::refresh);
+	}
+}
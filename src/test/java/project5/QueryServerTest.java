@@ -0,0 +1,145 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of QueryServer over real connections.
+ *
+ * @author Zhenghan Zhang
+ */
+public class QueryServerTest {
+	@TempDir
+	File dir;
+
+	private NamesDataset dataset;
+	private QueryServer server;
+	private Socket socket;
+	private InputStream in;
+	private OutputStream out;
+
+	/*
+	 * The dataset, except that the histogram of the name Boom fails.
+	 */
+	private class Failing implements NamesQueries {
+		public int getMinYear() {
+			return dataset.getMinYear();
+		}
+
+		public int getMaxYear() {
+			return dataset.getMaxYear();
+		}
+
+		public YearQueries getYearQueries(int year) {
+			return dataset.getYearQueries(year);
+		}
+
+		public double[] getFractions(String name, String county, int firstYear, int lastYear) {
+			if (name.equals("Boom")) {
+				throw new IllegalStateException("broken");
+			}
+			return dataset.getFractions(name, county, firstYear, lastYear);
+		}
+
+		public NameSearchIndex getSearchIndex() {
+			return dataset.getSearchIndex();
+		}
+	}
+
+	@BeforeEach
+	public void start() throws IOException {
+		dataset = TestData.dataset(dir, "2000,Ada,Kings,F,10", "2000,Bo,Kings,M,30", "2001,Ada,Queens,F,5");
+		server = new QueryServer(new Failing(), 0);
+		server.start();
+		socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+		socket.setSoTimeout(5000);
+		in = new BufferedInputStream(socket.getInputStream());
+		out = socket.getOutputStream();
+	}
+
+	@AfterEach
+	public void stop() throws IOException {
+		socket.close();
+		server.close();
+	}
+
+	private void send(String request) throws IOException {
+		out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+		out.flush();
+	}
+
+	/*
+	 * Reads one response; the status line is stored under the key "" and the body under "body".
+	 */
+	private Map<String, String> receive() throws IOException {
+		Map<String, String> response = new LinkedHashMap<String, String>();
+		response.put("", QueryServer.readLine(in));
+		String line;
+		while (!(line = QueryServer.readLine(in)).isEmpty()) {
+			int colon = line.indexOf(':');
+			response.put(line.substring(0, colon).toLowerCase(), line.substring(colon + 1).trim());
+		}
+		byte[] body = in.readNBytes(Integer.parseInt(response.get("content-length")));
+		response.put("body", new String(body, StandardCharsets.UTF_8));
+		return response;
+	}
+
+	@Test
+	public void http10KeepAliveIsEchoed() throws IOException {
+		send("GET /count?name=Ada&year=2000 HTTP/1.0\r\nConnection: keep-alive\r\n\r\n");
+		Map<String, String> response = receive();
+		assertEquals("keep-alive", response.get("connection"));
+		assertEquals("10\n", response.get("body"));
+		send("GET /count?name=Bo&county=Kings&year=2000 HTTP/1.0\r\n\r\n");
+		response = receive();
+		assertEquals("close", response.get("connection"));
+		assertEquals("30\n", response.get("body"));
+		assertEquals(-1, in.read());
+	}
+
+	@Test
+	public void pipelinedRequestsAreAnsweredInOrder() throws IOException {
+		send("GET /count?name=Ada&year=2000 HTTP/1.1\r\n\r\nGET /count?name=Ada&year=2001 HTTP/1.1\r\n\r\n"
+				+ "GET /nothing HTTP/1.1\r\n\r\n");
+		assertEquals("10\n", receive().get("body"));
+		assertEquals("5\n", receive().get("body"));
+		assertTrue(receive().get("").startsWith("HTTP/1.1 404"));
+	}
+
+	@Test
+	public void failedQueriesGetAnInternalServerError() throws IOException {
+		send("GET /histogram?name=Boom HTTP/1.1\r\n\r\n");
+		Map<String, String> response = receive();
+		assertTrue(response.get("").startsWith("HTTP/1.1 500"), response.get(""));
+		assertEquals("close", response.get("connection"));
+		assertEquals(-1, in.read());
+	}
+
+	@Test
+	public void invalidParametersGetABadRequest() throws IOException {
+		send("GET /count?name=Ada&year=x HTTP/1.1\r\n\r\nGET /count HTTP/1.1\r\n\r\n"
+				+ "GET /count?name=Ada&year=2000 HTTP/1.1\r\nContent-Length: x\r\n\r\n");
+		assertTrue(receive().get("").startsWith("HTTP/1.1 400"));
+		assertTrue(receive().get("").startsWith("HTTP/1.1 400"));
+		Map<String, String> response = receive();
+		assertTrue(response.get("").startsWith("HTTP/1.1 400"));
+		assertEquals("close", response.get("connection"));
+		assertNull(QueryServer.readLine(in));
+	}
+}
@@ -0,0 +1,107 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of StringDictionary against compareToIgnoreCase.
+ *
+ * @author Zhenghan Zhang
+ */
+public class StringDictionaryTest {
+	//letters whose upper and lower cases do not map one to one, and a letter outside the BMP
+	private static final String[] LETTERS = {"a", "A", "z", "é", "É", "ß", "ẞ", "ı", "I", "i",
+			"İ", "σ", "ς", "Σ", "Ǆ", "ǅ", "ǆ", "𐐀", "𐐨", "_", "1"};
+
+	private static String random(Random random) {
+		StringBuilder s = new StringBuilder();
+		for (int i = random.nextInt(5); i >= 0; i--) {
+			s.append(LETTERS[random.nextInt(LETTERS.length)]);
+		}
+		return s.toString();
+	}
+
+	@Test
+	public void foldedKeysCompareLikeCompareToIgnoreCase() {
+		Random random = new Random(10);
+		for (int i = 0; i < 100000; i++) {
+			String a = random(random);
+			String b = random(random);
+			assertEquals(Integer.signum(a.compareToIgnoreCase(b)),
+					Integer.signum(StringDictionary.fold(a).compareTo(StringDictionary.fold(b))), a + " " + b);
+		}
+	}
+
+	@Test
+	public void idsIgnoreCaseAndKeepTheFirstSpelling() {
+		StringDictionary dictionary = new StringDictionary(100);
+		int id = dictionary.id("McDonald");
+		assertEquals(id, dictionary.id("MCDONALD"));
+		assertEquals(id, dictionary.lookup("mcdonald"));
+		assertEquals("McDonald", dictionary.get(id));
+		assertEquals("mcdonald", dictionary.key(id));
+		assertEquals(-1, dictionary.lookup("Mc Donald"));
+		assertEquals(1, dictionary.size());
+		int other = dictionary.id("Adams");
+		assertEquals(Integer.signum("Adams".compareToIgnoreCase("McDonald")), Integer.signum(dictionary.compare(other, id)));
+		assertEquals(0, dictionary.compare(id, id));
+		assertThrows(ArrayIndexOutOfBoundsException.class, () -> dictionary.get(2));
+	}
+
+	@Test
+	public void aFullDictionaryRejectsNewStrings() {
+		StringDictionary dictionary = new StringDictionary(2);
+		dictionary.id("a");
+		dictionary.id("b");
+		assertEquals(1, dictionary.id("B"));
+		assertThrows(IllegalArgumentException.class, () -> dictionary.id("c"));
+		assertEquals(-1, dictionary.lookup("c"));
+	}
+
+	@Test
+	public void concurrentAddsHandOutOneIdPerString() {
+		StringDictionary dictionary = new StringDictionary(Integer.MAX_VALUE);
+		List<String> values = new ArrayList<String>();
+		for (int i = 0; i < 5000; i++) {
+			values.add("Value" + i);
+		}
+		int[] ids = IntStream.range(0, 4 * values.size()).parallel()
+				.map(i -> dictionary.id(i % 2 == 0 ? values.get(i / 4) : values.get(i / 4).toUpperCase())).toArray();
+		assertEquals(values.size(), dictionary.size());
+		for (int i = 0; i < ids.length; i++) {
+			assertEquals(dictionary.lookup(values.get(i / 4)), ids[i]);
+			assertTrue(values.get(i / 4).equalsIgnoreCase(dictionary.get(ids[i])));
+		}
+	}
+
+	@Test
+	public void namesCompareLikeTheirStringsIgnoringCase() {
+		Random random = new Random(11);
+		for (int i = 0; i < 20000; i++) {
+			String nameA = "Sd" + random(random);
+			String nameB = random.nextInt(4) == 0 ? nameA.toUpperCase() : "Sd" + random(random);
+			String countyA = random.nextBoolean() ? "Kings" : "Erie";
+			String countyB = random.nextBoolean() ? "KINGS" : "erie";
+			String genderA = random.nextBoolean() ? "F" : "M";
+			String genderB = random.nextBoolean() ? "f" : "m";
+			int expected = nameA.compareToIgnoreCase(nameB);
+			if (expected == 0) {
+				expected = countyA.compareToIgnoreCase(countyB);
+			}
+			if (expected == 0) {
+				expected = genderA.compareToIgnoreCase(genderB);
+			}
+			Name a = new Name(nameA, genderA, 1, countyA);
+			Name b = new Name(nameB, genderB, 1, countyB);
+			assertEquals(Integer.signum(expected), Integer.signum(a.compareTo(b)), a + " " + b);
+			assertEquals(expected == 0, a.equals(b));
+		}
+	}
+}
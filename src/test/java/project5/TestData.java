@@ -0,0 +1,104 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Names for the tests: random years, small csv files, and checks that two
+ * forms of a year give the same answers.
+ *
+ * @author Zhenghan Zhang
+ */
+public class TestData {
+	public static final String HEADER = "Year,First Name,County,Sex,Count\n";
+	private static final String[] COUNTIES = {"Kings", "Queens", "Erie"};
+	private static final String[] GENDERS = {"F", "M"};
+
+	private TestData() {
+	}
+
+	/**
+	 * Writes the rows under the header line to a new file.
+	 * @param file the file
+	 * @param rows the rows, without line separators
+	 * @return the file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static File csv(File file, String... rows) throws IOException {
+		StringBuilder text = new StringBuilder(HEADER);
+		for (String row : rows) {
+			text.append(row).append('\n');
+		}
+		Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	/**
+	 * Reads the rows into a dataset.
+	 * @param dir a directory for the csv file
+	 * @param rows the rows, without line separators
+	 * @return the dataset
+	 * @throws IOException if the file cannot be written or read
+	 */
+	public static NamesDataset dataset(File dir, String... rows) throws IOException {
+		return new ParallelLoader().load(csv(File.createTempFile("names", ".csv", dir), rows));
+	}
+
+	/**
+	 * Adds and removes random names in a year and in a map of the same names,
+	 * keyed by name, county and gender.
+	 * @param year the year
+	 * @param names the names already in the year
+	 * @param seed the seed of the random names
+	 * @param operations the number of adds and removes
+	 * @return the map of names
+	 */
+	public static Map<String, Name> fill(YearNames year, Map<String, Name> names, long seed, int operations) {
+		Random random = new Random(seed);
+		for (int i = 0; i < operations; i++) {
+			String name = "Yn" + (char) ('a' + random.nextInt(26)) + (char) ('a' + random.nextInt(3));
+			String county = COUNTIES[random.nextInt(COUNTIES.length)];
+			String gender = GENDERS[random.nextInt(2)];
+			String key = name + "," + county + "," + gender;
+			if (random.nextInt(4) == 0) {
+				assertEquals(names.remove(key) != null, year.remove(new Name(name, gender, 1, county)), key);
+			}
+			else {
+				Name added = new Name(name, gender, 1 + random.nextInt(20), county);
+				assertEquals(names.putIfAbsent(key, added) == null, year.add(added), key);
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Checks that a year gives the expected totals, counts and fractions for
+	 * the names and their counties.
+	 * @param expected the expected answers
+	 * @param actual the year to check
+	 * @param names the names to ask for
+	 */
+	public static void checkAnswers(YearQueries expected, YearQueries actual, Collection<Name> names) {
+		assertEquals(expected.getTotalCount(), actual.getTotalCount());
+		for (String county : new String[] {"ALL", "Kings", "queens", "Erie", "Nowhere"}) {
+			assertEquals(expected.getCountyTotal(county), actual.getCountyTotal(county), county);
+		}
+		for (Name name : names) {
+			String n = name.getName();
+			assertEquals(expected.getCountByName(n), actual.getCountByName(n), n);
+			assertEquals(expected.getFractionByName(n), actual.getFractionByName(n), n);
+			for (String county : new String[] {"ALL", name.getCounty(), "Nowhere"}) {
+				assertEquals(expected.getCountByNameCounty(n, county), actual.getCountByNameCounty(n, county), n + " " + county);
+				assertEquals(expected.getFractionByNameCounty(n, county), actual.getFractionByNameCounty(n, county), n + " " + county);
+			}
+		}
+		assertEquals(0, actual.getCountByName("Unknownname"));
+	}
+}
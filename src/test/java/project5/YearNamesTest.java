@@ -0,0 +1,130 @@
+package project5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the queries of YearNames against sums over the names of the year.
+ *
+ * @author Zhenghan Zhang
+ */
+public class YearNamesTest {
+	private static final String[] GENDERS = {"F", "M"};
+
+	/*
+	 * Sums the counts of every name of a gender in a county, or in all counties.
+	 */
+	private static Map<String, Integer> counts(Map<String, Name> names, String county, String gender) {
+		HashMap<String, Integer> counts = new HashMap<String, Integer>();
+		for (Name name : names.values()) {
+			if (name.getGender().equals(gender) && (county.equals("ALL") || name.getCounty().equalsIgnoreCase(county))) {
+				counts.merge(name.getName(), name.getCount(), Integer::sum);
+			}
+		}
+		return counts;
+	}
+
+	private static void checkPopularity(YearNames year, Map<String, Name> names) {
+		for (String county : new String[] {"ALL", "Kings", "Queens", "Erie"}) {
+			for (String gender : GENDERS) {
+				Map<String, Integer> counts = counts(names, county, gender);
+				List<String> expected = new ArrayList<String>(counts.keySet());
+				expected.sort(Comparator.<String>comparingInt(n -> -counts.get(n)).thenComparing(String::compareToIgnoreCase));
+				List<String> top = new ArrayList<String>();
+				for (PopularityIndex.Entry entry : year.topK(10, county, gender)) {
+					top.add(entry.getName());
+					assertEquals(gender, entry.getGender());
+					assertEquals((int) counts.get(entry.getName()), entry.getCount());
+				}
+				assertEquals(expected.subList(0, Math.min(10, expected.size())), top, county + " " + gender);
+				for (String name : expected) {
+					int count = counts.get(name);
+					int rank = 1 + (int) counts.values().stream().filter(c -> c > count).count();
+					assertEquals(rank, year.rankOf(name, county, gender), name + " " + county + " " + gender);
+				}
+				assertEquals(-1, year.rankOf("Ynzz", county, gender));
+			}
+		}
+	}
+
+	@Test
+	public void topKAndRankOfFollowAddsAndRemoves() {
+		YearNames year = new YearNames(2000);
+		Map<String, Name> names = TestData.fill(year, new HashMap<String, Name>(), 3, 3000);
+		checkPopularity(year, names);
+	}
+
+	@Test
+	public void snapshotsRankTheNamesOfTheirTime() {
+		YearNames year = new YearNames(2000);
+		Map<String, Name> names = TestData.fill(year, new HashMap<String, Name>(), 5, 1000);
+		YearNames snapshot = year.snapshot();
+		HashMap<String, Name> before = new HashMap<String, Name>(names);
+		TestData.fill(year, names, 6, 1000);
+		checkPopularity(snapshot, before);
+		checkPopularity(year, names);
+	}
+
+	@Test
+	public void rankOfBothGendersIsTheBetterRank() {
+		YearNames year = new YearNames(2000);
+		year.add(new Name("Ynboth", "F", 1, "Kings"));
+		year.add(new Name("Ynboth", "M", 9, "Kings"));
+		year.add(new Name("Ynother", "M", 10, "Kings"));
+		assertEquals(1, year.rankOf("Ynboth", "Kings", "f"));
+		assertEquals(2, year.rankOf("Ynboth", "Kings", "m"));
+		assertEquals(1, year.rankOf("Ynboth", "Kings"));
+		assertEquals(1, year.rankOf("Ynother", "ALL"));
+		assertEquals(-1, year.rankOf("Ynother", "Queens"));
+		assertTrue(year.topK(5, "Queens", "m").isEmpty());
+	}
+
+	@Test
+	public void bulkLoadEqualsAddingOneByOne() {
+		YearNames added = new YearNames(2000);
+		Map<String, Name> names = TestData.fill(added, new HashMap<String, Name>(), 7, 2000);
+		List<Name> sorted = new ArrayList<Name>(names.values());
+		sorted.sort(null);
+		YearNames loaded = new YearNames(2000);
+		loaded.add(new Name("Ynreplaced", "F", 100, "Kings"));
+		loaded.bulkLoad(sorted);
+		assertEquals(sorted, loaded.first(sorted.size() + 1));
+		checkPopularity(loaded, names);
+		for (Name name : sorted) {
+			String county = name.getCounty();
+			assertEquals(added.getFractionByNameCounty(name.getName(), county), loaded.getFractionByNameCounty(name.getName(), county));
+			assertEquals(added.getFractionByNameCounty(name.getName(), "ALL"), loaded.getFractionByNameCounty(name.getName(), "ALL"));
+		}
+		assertEquals(0, loaded.getCountByName("Ynreplaced"));
+	}
+
+	@Test
+	public void namesWithPrefixMatchAFilterOfAllNames() {
+		YearNames year = new YearNames(2000);
+		Map<String, Name> names = TestData.fill(year, new HashMap<String, Name>(), 21, 2000);
+		year.add(new Name("YNAÉ", "F", 1, "Kings"));
+		names.put("YNAÉ,Kings,F", new Name("YNAÉ", "F", 1, "Kings"));
+		for (String prefix : new String[] {"", "y", "YNA", "ynaa", "Ynaé", "ynz", "Yn", "x"}) {
+			for (String county : new String[] {"ALL", "kings", "Erie", "Nowhere"}) {
+				List<Name> expected = new ArrayList<Name>();
+				for (Name name : names.values()) {
+					if (name.getName().toLowerCase().startsWith(prefix.toLowerCase())
+							&& (county.equals("ALL") || name.getCounty().equalsIgnoreCase(county))) {
+						expected.add(name);
+					}
+				}
+				expected.sort(null);
+				List<Name> found = new ArrayList<Name>();
+				assertEquals(expected.size(), year.namesWithPrefix(prefix, county, found::add), prefix + " " + county);
+				assertEquals(expected, found, prefix + " " + county);
+			}
+		}
+	}
+}